@@ -0,0 +1,95 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spongepowered.lwts.transformer.AccessTransformer;
+import org.spongepowered.lwts.transformer.AccessTransformerCompiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of loading large access transformer
+ * configurations, either from text or compiled using
+ * {@link AccessTransformerCompiler}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AccessTransformerParseBenchmark {
+
+    private static final String CLASS_NAME = "org.spongepowered.lwts.benchmark.LargeClass";
+
+    @Param({"1000", "10000", "50000"})
+    public int lines;
+
+    @Param({"text", "compiled"})
+    public String format;
+
+    private URL config;
+
+    @Setup
+    public void setup() throws IOException {
+        File file = BenchmarkClasses.writeConfig(CLASS_NAME, this.lines, false);
+        if (this.format.equals("compiled")) {
+            File compiled = File.createTempFile("lwts", AccessTransformer.COMPILED_EXTENSION);
+            compiled.deleteOnExit();
+
+            AccessTransformerCompiler compiler = new AccessTransformerCompiler();
+            compiler.add(file.toURI().toURL());
+            compiler.write(compiled);
+            file = compiled;
+        }
+
+        this.config = file.toURI().toURL();
+    }
+
+    @Benchmark
+    public AccessTransformer parse() throws IOException {
+        AccessTransformer transformer = new AccessTransformer();
+        transformer.register(this.config);
+
+        // The configuration is only compiled once the first class is transformed
+        transformer.transform(CLASS_NAME, CLASS_NAME, null);
+        return transformer;
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spongepowered.lwts.transformer.AccessTransformer;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how the transformation of a single class scales with the number
+ * of access transformer entries targeting it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AccessTransformerScalingBenchmark {
+
+    private static final String CLASS_NAME = "org.spongepowered.lwts.benchmark.LargeClass";
+
+    /**
+     * The number of lines in the access transformer configuration. The
+     * target class has one field and one method for every two lines.
+     */
+    @Param({"50", "500", "5000"})
+    public int lines;
+
+    private AccessTransformer transformer;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() throws IOException {
+        this.bytes = BenchmarkClasses.generate(CLASS_NAME.replace('.', '/'), this.lines / 2);
+        this.transformer = new AccessTransformer();
+        this.transformer.register(BenchmarkClasses.writeConfig(CLASS_NAME, this.lines, false).toURI().toURL());
+
+        // Build the modifiers before the measurement starts
+        this.transformer.transform(CLASS_NAME, CLASS_NAME, this.bytes);
+    }
+
+    @Benchmark
+    public byte[] transform() {
+        return this.transformer.transform(CLASS_NAME, CLASS_NAME, this.bytes);
+    }
+
+}
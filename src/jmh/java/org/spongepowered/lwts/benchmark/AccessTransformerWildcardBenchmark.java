@@ -0,0 +1,97 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.benchmark;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spongepowered.lwts.transformer.AccessTransformer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the transformation throughput for a class with an increasing
+ * number of wildcard rules, combined with targeted rules for some members.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AccessTransformerWildcardBenchmark {
+
+    private static final String CLASS_NAME = "org.spongepowered.lwts.benchmark.WildcardClass";
+    private static final int MEMBERS = 500;
+
+    private static final String[] ACCESS = {"protected", "public", "public-f", "protected+f"};
+
+    @Param({"2", "20", "200"})
+    public int wildcards;
+
+    private AccessTransformer transformer;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < this.wildcards; i++) {
+            builder.append(ACCESS[i % ACCESS.length]).append(' ').append(CLASS_NAME).append(i % 2 == 0 ? " *" : " *()").append('\n');
+        }
+
+        // Targeted rules for every tenth member override the wildcards
+        for (int i = 0; i < MEMBERS; i += 10) {
+            builder.append("public ").append(CLASS_NAME).append(" field").append(i).append('\n');
+            builder.append("public ").append(CLASS_NAME).append(" method").append(i).append("()V\n");
+        }
+
+        File file = File.createTempFile("lwts", "_at.cfg");
+        file.deleteOnExit();
+        Files.write(builder, file, Charsets.UTF_8);
+
+        this.bytes = BenchmarkClasses.generate(CLASS_NAME.replace('.', '/'), MEMBERS);
+        this.transformer = new AccessTransformer();
+        this.transformer.register(file.toURI().toURL());
+        this.transformer.transform(CLASS_NAME, CLASS_NAME, this.bytes);
+    }
+
+    @Benchmark
+    public byte[] transform() {
+        return this.transformer.transform(CLASS_NAME, CLASS_NAME, this.bytes);
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.benchmark;
+
+import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_SUPER;
+import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.GETFIELD;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.POP;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.V1_6;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Generates classes and access transformer configurations for benchmarks.
+ */
+final class BenchmarkClasses {
+
+    private BenchmarkClasses() {
+    }
+
+    /**
+     * Generates a class with the specified number of private fields and
+     * methods. Each method reads a field and calls the next method using
+     * INVOKESPECIAL.
+     *
+     * @param name The internal name of the class
+     * @param members The number of fields and methods to generate
+     * @return The class bytes
+     */
+    static byte[] generate(String name, int members) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(V1_6, ACC_PUBLIC | ACC_SUPER, name, null, "java/lang/Object", null);
+
+        for (int i = 0; i < members; i++) {
+            writer.visitField(ACC_PRIVATE, "field" + i, "I", null, null).visitEnd();
+        }
+
+        for (int i = 0; i < members; i++) {
+            MethodVisitor mv = writer.visitMethod(ACC_PRIVATE, "method" + i, "()V", null, null);
+            mv.visitCode();
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, name, "field" + i, "I");
+            mv.visitInsn(POP);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitMethodInsn(INVOKESPECIAL, name, "method" + ((i + 1) % members), "()V", false);
+            mv.visitInsn(RETURN);
+            mv.visitMaxs(1, 1);
+            mv.visitEnd();
+        }
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    /**
+     * Writes an access transformer configuration for a class generated
+     * using {@link #generate(String, int)} to a temporary file.
+     *
+     * @param className The name of the class
+     * @param lines The number of configuration lines to generate
+     * @param wildcard Whether to use wildcard rules instead of targeted ones
+     * @return The configuration file
+     * @throws IOException If an error occurs while writing the file
+     */
+    static File writeConfig(String className, int lines, boolean wildcard) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            builder.append("public ").append(className).append(' ');
+            if (wildcard) {
+                builder.append(i % 2 == 0 ? "*" : "*()");
+            } else {
+                builder.append(i % 2 == 0 ? "field" + (i / 2) : "method" + (i / 2) + "()V");
+            }
+            builder.append('\n');
+        }
+
+        File file = File.createTempFile("lwts", "_at.cfg");
+        file.deleteOnExit();
+        Files.write(builder, file, Charsets.UTF_8);
+        return file;
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.benchmark;
+
+import com.google.common.collect.Lists;
+import net.minecraft.launchwrapper.LaunchClassLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.spongepowered.lwts.loader.ClassPathIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading the Commons Math linear algebra classes through a new
+ * {@link LaunchClassLoader}, with and without the {@link ClassPathIndex}.
+ * Commons Math is on the benchmark class path as a dependency of JMH, and
+ * unlike Guava or ASM it is not excluded from the transformers, so its
+ * class bytes are requested using {@link LaunchClassLoader#getClassBytes(String)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ClassBytesBenchmark {
+
+    private static final String PACKAGE = "org.apache.commons.math3.linear.";
+
+    @Param({"false", "true"})
+    public boolean index;
+
+    private URL[] urls;
+    private final List<String> classNames = Lists.newArrayList();
+    private LaunchClassLoader loader;
+
+    @Setup
+    public void setupClassPath() throws IOException {
+        String[] classPath = System.getProperty("java.class.path").split(File.pathSeparator);
+        List<URL> urls = Lists.newArrayListWithCapacity(classPath.length);
+        for (String path : classPath) {
+            urls.add(new File(path).toURI().toURL());
+        }
+        this.urls = urls.toArray(new URL[urls.size()]);
+
+        ClassPathIndex index = ClassPathIndex.build(urls);
+        try {
+            for (String className : index.getClassNames()) {
+                if (className.startsWith(PACKAGE)) {
+                    this.classNames.add(className);
+                }
+            }
+        } finally {
+            index.close();
+        }
+    }
+
+    // A new class loader is needed for every invocation because each class can only be loaded once
+    @Setup(Level.Invocation)
+    public void setupClassLoader() throws IOException {
+        this.loader = new LaunchClassLoader(this.urls);
+        if (this.index) {
+            ClassPathIndex.install(this.loader);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeIndex() throws IOException {
+        ClassPathIndex index = ClassPathIndex.get(this.loader);
+        if (index != null) {
+            index.close();
+        }
+    }
+
+    @Benchmark
+    public void loadClasses(Blackhole blackhole) throws ClassNotFoundException {
+        for (String className : this.classNames) {
+            blackhole.consume(Class.forName(className, false, this.loader));
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.benchmark;
+
+import net.minecraft.launchwrapper.LaunchClassLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of loading a single class through a new
+ * {@link LaunchClassLoader} with a varying number of transformers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ClassLoadBenchmark {
+
+    private static final String TRANSFORMER = "org.spongepowered.lwts.benchmark.PassThroughTransformer";
+    private static final String TARGET = "org.spongepowered.lwts.benchmark.LoadTarget";
+
+    @Param({"0", "1", "5"})
+    public int transformers;
+
+    private URL[] urls;
+    private LaunchClassLoader loader;
+
+    @Setup
+    public void setupClassPath() throws MalformedURLException {
+        String[] classPath = System.getProperty("java.class.path").split(File.pathSeparator);
+        this.urls = new URL[classPath.length];
+        for (int i = 0; i < classPath.length; i++) {
+            this.urls[i] = new File(classPath[i]).toURI().toURL();
+        }
+    }
+
+    // A new class loader is needed for every invocation because each class can only be loaded once
+    @Setup(Level.Invocation)
+    public void setupClassLoader() {
+        this.loader = new LaunchClassLoader(this.urls);
+        this.loader.addClassLoaderExclusion(TRANSFORMER);
+        for (int i = 0; i < this.transformers; i++) {
+            this.loader.registerTransformer(TRANSFORMER);
+        }
+    }
+
+    @Benchmark
+    public Class<?> loadClass() throws ClassNotFoundException {
+        return Class.forName(TARGET, false, this.loader);
+    }
+
+}
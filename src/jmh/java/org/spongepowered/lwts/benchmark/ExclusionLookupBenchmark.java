@@ -0,0 +1,110 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.benchmark;
+
+import com.google.common.collect.Sets;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.spongepowered.lwts.loader.PackageTrie;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the exclusion lookup of the {@link PackageTrie} with the linear
+ * prefix check used by the {@link net.minecraft.launchwrapper.LaunchClassLoader}
+ * as the number of exclusions grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExclusionLookupBenchmark {
+
+    private static final String[] CLASS_NAMES = {
+            "java.lang.String",
+            "org.junit.runner.RunWith",
+            "com.example.project.world.entity.EntityPlayer",
+            "com.example.pkg7.Excluded",
+            "net.minecraft.launchwrapper.LaunchClassLoader"
+    };
+
+    @Param({"10", "100", "500"})
+    public int exclusions;
+
+    private Set<String> prefixes;
+    private PackageTrie trie;
+
+    @Setup
+    public void setup() {
+        this.prefixes = Sets.newHashSet("java.", "sun.", "org.lwjgl.", "org.apache.logging.", "net.minecraft.launchwrapper.",
+                "org.junit.", "org.hamcrest.", "org.mockito.");
+        for (int i = 0; this.prefixes.size() < this.exclusions; i++) {
+            this.prefixes.add("com.example.pkg" + i + '.');
+        }
+
+        this.trie = new PackageTrie();
+        for (String prefix : this.prefixes) {
+            this.trie.add(prefix);
+        }
+    }
+
+    @Benchmark
+    public void linear(Blackhole blackhole) {
+        for (String name : CLASS_NAMES) {
+            blackhole.consume(matchesLinear(name));
+        }
+    }
+
+    @Benchmark
+    public void trie(Blackhole blackhole) {
+        for (String name : CLASS_NAMES) {
+            blackhole.consume(this.trie.matches(name));
+        }
+    }
+
+    private boolean matchesLinear(String name) {
+        // Same as the checks in LaunchClassLoader.findClass
+        for (String prefix : this.prefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -24,17 +24,33 @@
  */
 package org.spongepowered.lwts;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.spongepowered.lwts.runner.LaunchWrapperTestRunner.CLASSPATH_INDEX_PROPERTY;
+
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Resources;
 import net.minecraft.launchwrapper.IClassTransformer;
 import net.minecraft.launchwrapper.ITweaker;
 import net.minecraft.launchwrapper.Launch;
 import net.minecraft.launchwrapper.LaunchClassLoader;
+import org.spongepowered.lwts.loader.ClassLoaderExclusions;
+import org.spongepowered.lwts.loader.ClassPathIndex;
+import org.spongepowered.lwts.profile.StartupProfiler;
 import org.spongepowered.lwts.transformer.AccessTransformer;
+import org.spongepowered.lwts.transformer.TargetedTransformer;
+import org.spongepowered.lwts.transformer.TransformerTargets;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URL;
 import java.util.List;
+import java.util.Map;
 
+import javax.annotation.Nullable;
 import javax.annotation.OverridingMethodsMustInvokeSuper;
 
 /**
@@ -47,11 +63,25 @@
  */
 public abstract class AbstractTestTweaker implements ITweaker {
 
+    /**
+     * The key used to store the active tweaker in the
+     * {@link Launch#blackboard}.
+     */
+    public static final String BLACKBOARD_KEY = "lwts.tweaker";
+
+    private final List<URL> configurations = Lists.newArrayList();
+    private final Map<String, TransformerTargets> transformerTargets = Maps.newHashMap();
+
     private AccessTransformer transformer;
+    @Nullable private ClassLoaderExclusions exclusions;
+
+    protected AbstractTestTweaker() {
+        StartupProfiler.startPhase("tweaker.construct");
+    }
 
     @Override
     public void acceptOptions(List<String> args, File gameDir, File assetsDir, String profile) {
-
+        StartupProfiler.startPhase("tweaker.accept_options");
     }
 
     /**
@@ -66,19 +96,29 @@ public void acceptOptions(List<String> args, File gameDir, File assetsDir, Strin
     @Override
     @OverridingMethodsMustInvokeSuper
     public void injectIntoClassLoader(LaunchClassLoader loader) {
+        StartupProfiler.startPhase("tweaker.inject");
+        Launch.blackboard.put(BLACKBOARD_KEY, this);
+
         // Load our classes using the main class loader
-        loader.addClassLoaderExclusion("org.spongepowered.lwts.runner.");
-        loader.addClassLoaderExclusion("org.spongepowered.lwts.transformer.");
+        addClassLoaderExclusion("org.spongepowered.lwts.runner.");
+        addClassLoaderExclusion("org.spongepowered.lwts.transformer.");
+        addClassLoaderExclusion("org.spongepowered.lwts.loader.");
+        addClassLoaderExclusion("org.spongepowered.lwts.profile.");
 
         // JUnit attempts to lookup the @Test annotation so we need to make sure the classes are loaded
         // using the same class loader (the main class loader)
-        loader.addClassLoaderExclusion("org.junit.");
-        loader.addClassLoaderExclusion("org.hamcrest.");
+        addClassLoaderExclusion("org.junit.");
+        addClassLoaderExclusion("org.hamcrest.");
 
         // Mockito
-        loader.addClassLoaderExclusion("org.mockito.");
-        loader.addClassLoaderExclusion("net.bytebuddy.");
-        loader.addClassLoaderExclusion("org.objenesis.");
+        addClassLoaderExclusion("org.mockito.");
+        addClassLoaderExclusion("net.bytebuddy.");
+        addClassLoaderExclusion("org.objenesis.");
+
+        if (Boolean.getBoolean(CLASSPATH_INDEX_PROPERTY)) {
+            // Read the class bytes passed to the transformers directly from the jars
+            ClassPathIndex.tryInstall(loader);
+        }
     }
 
     /**
@@ -105,6 +145,103 @@ public String[] getLaunchArguments() {
         return new String[0];
     }
 
+    /**
+     * Starts a new phase in the startup profile (see
+     * {@code lwts.startup.profile}), ending the current phase. This can be
+     * used to measure the individual steps of
+     * {@link #injectIntoClassLoader(LaunchClassLoader)}, e.g. the Mixin
+     * bootstrap.
+     *
+     * <p>The {@code launch_target} phase is started by the default launch
+     * target. Custom launch targets (see {@link #getLaunchTarget()}) can
+     * start it using {@link StartupProfiler#startPhase(String)}.</p>
+     *
+     * @param name The name of the phase
+     */
+    protected final void startPhase(String name) {
+        StartupProfiler.startPhase(name);
+    }
+
+    /**
+     * Returns whether the state configured by this tweaker can be captured
+     * in a snapshot that is restored by later test runs instead of running
+     * this tweaker again (see {@code lwts.snapshot}).
+     *
+     * <p>A snapshot contains the class loader exclusions, the names of the
+     * registered transformers and the registered access transformers. Only
+     * return {@code true} if the tweaker does not configure any other state,
+     * e.g. Mixin environments or transformers that need to be configured
+     * after they were registered. The default implementation returns
+     * {@code false}.</p>
+     *
+     * @return Whether a snapshot can be used instead of this tweaker
+     */
+    public boolean isSnapshotSupported() {
+        return false;
+    }
+
+    /**
+     * Excludes classes from being loaded by the {@link LaunchClassLoader}.
+     * Classes starting with the prefix are loaded by the main class loader
+     * instead.
+     *
+     * <p>Exclusions that are already covered by another exclusion are not
+     * registered on the class loader again.</p>
+     *
+     * @param prefix The prefix of the excluded classes, e.g.
+     *     {@code com.example.}
+     */
+    protected final void addClassLoaderExclusion(String prefix) {
+        getExclusions().addClassLoaderExclusion(prefix);
+    }
+
+    /**
+     * Excludes classes from being transformed. Classes starting with the
+     * prefix are still loaded by the {@link LaunchClassLoader}, but no
+     * transformers are applied.
+     *
+     * @param prefix The prefix of the excluded classes, e.g.
+     *     {@code com.example.}
+     */
+    protected final void addTransformerExclusion(String prefix) {
+        getExclusions().addTransformerExclusion(prefix);
+    }
+
+    private ClassLoaderExclusions getExclusions() {
+        // Exclusions may already be added before the tweaker is injected into the class loader
+        if (this.exclusions == null) {
+            this.exclusions = ClassLoaderExclusions.of(Launch.classLoader);
+        }
+        return this.exclusions;
+    }
+
+    /**
+     * Registers a transformer that only modifies the specified classes. The
+     * transformer is not run for any other classes.
+     *
+     * <p>Transformers implementing {@link TargetedTransformer} declare their
+     * targets themselves and can be registered directly on the
+     * {@link LaunchClassLoader}.</p>
+     *
+     * @param transformerClass The full qualified name of the transformer
+     *     class
+     * @param targets The classes modified by the transformer
+     */
+    protected final void registerTransformer(String transformerClass, TransformerTargets targets) {
+        this.transformerTargets.put(transformerClass, checkNotNull(targets, "targets"));
+        Launch.classLoader.registerTransformer(transformerClass);
+    }
+
+    /**
+     * Returns the targets of the transformers registered using
+     * {@link #registerTransformer(String, TransformerTargets)}.
+     *
+     * @return The transformer targets, by the class name of the transformer
+     */
+    public final ImmutableMap<String, TransformerTargets> getTransformerTargets() {
+        return ImmutableMap.copyOf(this.transformerTargets);
+    }
+
     /**
      * Registers an access transformer to apply before test execution.
      *
@@ -125,6 +262,32 @@ protected final void registerAccessTransformer(String file) {
         } catch (IOException e) {
             throw Throwables.propagate(e);
         }
+
+        registerConfiguration(file);
+    }
+
+    /**
+     * Registers a configuration file that is used by the transformers (e.g.
+     * a Mixin configuration). Changes to registered configurations invalidate
+     * the cache of transformed classes.
+     *
+     * <p>Access transformers registered using
+     * {@link #registerAccessTransformer(String)} are registered
+     * automatically.</p>
+     *
+     * @param file The path to the configuration file
+     */
+    protected final void registerConfiguration(String file) {
+        this.configurations.add(Resources.getResource(file));
+    }
+
+    /**
+     * Returns the configuration files registered by this tweaker.
+     *
+     * @return The registered configuration files
+     */
+    public final ImmutableList<URL> getConfigurations() {
+        return ImmutableList.copyOf(this.configurations);
     }
 
 }
@@ -24,6 +24,8 @@
  */
 package org.spongepowered.lwts;
 
+import org.spongepowered.lwts.profile.StartupProfiler;
+
 /**
  * Default main class. Exits immediately so test execution can start.
  *
@@ -36,7 +38,8 @@ private TestMain() {
     }
 
     public static void main(String[] args) {
-        // Nothing to do
+        // Only called once, unlike the getters of the tweaker
+        StartupProfiler.startPhase("launch_target");
     }
 
 }
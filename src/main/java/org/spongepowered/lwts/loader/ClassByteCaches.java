@@ -0,0 +1,67 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.loader;
+
+import net.minecraft.launchwrapper.LaunchClassLoader;
+
+/**
+ * Provides access to the class bytes cached by a {@link LaunchClassLoader}.
+ *
+ * <p>{@link LaunchClassLoader#getClassBytes(String)} keeps the untransformed
+ * bytes of every class it has read, even though they are usually not needed
+ * again once the class was defined.</p>
+ */
+public final class ClassByteCaches {
+
+    private ClassByteCaches() {
+    }
+
+    /**
+     * Returns the total size of the class bytes cached by the specified class
+     * loader.
+     *
+     * @param loader The class loader
+     * @return The cached bytes
+     */
+    public static long getCachedBytes(LaunchClassLoader loader) {
+        return ResourceCache.install(loader).getCachedBytes();
+    }
+
+    /**
+     * Clears the class bytes cached by the specified class loader. Classes
+     * requested again are read from the class path. This is safe while
+     * classes are loaded concurrently.
+     *
+     * @param loader The class loader
+     * @return The total size of the released class bytes
+     */
+    public static long clear(LaunchClassLoader loader) {
+        ResourceCache resourceCache = ResourceCache.install(loader);
+        long size = resourceCache.getCachedBytes();
+        resourceCache.clear();
+        return size;
+    }
+
+}
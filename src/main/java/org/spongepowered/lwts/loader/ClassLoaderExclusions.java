@@ -0,0 +1,163 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.loader;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import net.minecraft.launchwrapper.LaunchClassLoader;
+
+import java.lang.reflect.Field;
+import java.util.Set;
+
+/**
+ * Registry for the class loader and transformer exclusions of a
+ * {@link LaunchClassLoader}, backed by a {@link PackageTrie}.
+ *
+ * <p>Exclusions are only forwarded to the class loader if they are not
+ * already covered by a shorter exclusion, which keeps the number of
+ * exclusions the class loader needs to check for each class small. LWTS
+ * uses this registry to check for excluded classes without iterating over
+ * all exclusions.</p>
+ */
+public final class ClassLoaderExclusions {
+
+    // Always excluded by LaunchClassLoader, checked before the trie
+    private static final String JAVA_PREFIX = "java.";
+
+    private final LaunchClassLoader loader;
+    private final PackageTrie classLoaderExclusions = new PackageTrie();
+    private final PackageTrie transformerExclusions = new PackageTrie();
+
+    private ClassLoaderExclusions(LaunchClassLoader loader) {
+        this.loader = loader;
+
+        for (String exclusion : getClassLoaderExclusions(loader)) {
+            this.classLoaderExclusions.add(exclusion);
+        }
+        for (String exclusion : getTransformerExclusions(loader)) {
+            this.transformerExclusions.add(exclusion);
+        }
+    }
+
+    /**
+     * Creates a registry with all exclusions currently registered on the
+     * specified class loader.
+     *
+     * @param loader The class loader
+     * @return The exclusion registry
+     */
+    public static ClassLoaderExclusions of(LaunchClassLoader loader) {
+        return new ClassLoaderExclusions(loader);
+    }
+
+    /**
+     * Adds a class loader exclusion. Classes starting with the prefix are
+     * loaded by the parent class loader.
+     *
+     * @param prefix The prefix of the excluded classes
+     */
+    public void addClassLoaderExclusion(String prefix) {
+        if (this.classLoaderExclusions.add(prefix)) {
+            this.loader.addClassLoaderExclusion(prefix);
+        }
+    }
+
+    /**
+     * Adds a transformer exclusion. Classes starting with the prefix are
+     * loaded without applying any transformers.
+     *
+     * @param prefix The prefix of the excluded classes
+     */
+    public void addTransformerExclusion(String prefix) {
+        if (this.transformerExclusions.add(prefix)) {
+            this.loader.addTransformerExclusion(prefix);
+        }
+    }
+
+    /**
+     * Returns whether the class is loaded by the parent class loader.
+     *
+     * @param name The class name
+     * @return {@code true} if the class is excluded
+     */
+    public boolean isClassLoaderExcluded(String name) {
+        return name.startsWith(JAVA_PREFIX) || this.classLoaderExclusions.matches(name);
+    }
+
+    /**
+     * Returns whether the class is loaded without applying any transformers.
+     *
+     * @param name The class name
+     * @return {@code true} if the class is excluded
+     */
+    public boolean isTransformerExcluded(String name) {
+        return this.transformerExclusions.matches(name);
+    }
+
+    /**
+     * Returns whether the class is never passed to the transformers, either
+     * because it is loaded by the parent class loader or because it is
+     * excluded from transformation.
+     *
+     * @param name The class name
+     * @return {@code true} if the class is not transformed
+     */
+    public boolean isExcluded(String name) {
+        return isClassLoaderExcluded(name) || isTransformerExcluded(name);
+    }
+
+    /**
+     * Returns the class loader exclusions registered on the class loader.
+     *
+     * @param loader The class loader
+     * @return The class loader exclusions
+     */
+    public static ImmutableList<String> getClassLoaderExclusions(LaunchClassLoader loader) {
+        return getExclusions(loader, "classLoaderExceptions");
+    }
+
+    /**
+     * Returns the transformer exclusions registered on the class loader.
+     *
+     * @param loader The class loader
+     * @return The transformer exclusions
+     */
+    public static ImmutableList<String> getTransformerExclusions(LaunchClassLoader loader) {
+        return getExclusions(loader, "transformerExceptions");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ImmutableList<String> getExclusions(LaunchClassLoader loader, String fieldName) {
+        // LaunchClassLoader does not expose the registered exclusions
+        try {
+            Field field = LaunchClassLoader.class.getDeclaredField(fieldName);
+            field.setAccessible(true);
+            return ImmutableList.copyOf((Set<String>) field.get(loader));
+        } catch (Exception e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+}
@@ -0,0 +1,524 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.loader;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import net.minecraft.launchwrapper.LaunchClassLoader;
+import net.minecraft.launchwrapper.LogWrapper;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import javax.annotation.Nullable;
+
+/**
+ * Index of the classes on the class path of a {@link LaunchClassLoader},
+ * mapping each class name to its location in a jar or directory.
+ *
+ * <p>The central directories of all jars are read once when the index is
+ * built. Class bytes are then read directly from the indexed offset into
+ * reused per-thread buffers, instead of searching all sources for the
+ * resource URL and copying its stream for every class. Jars are read using
+ * {@link RandomAccessFile} rather than a {@code FileChannel}, because
+ * interrupting a thread while it reads from a channel closes the channel for
+ * all other threads as well.</p>
+ *
+ * <p>Once {@linkplain #install(LaunchClassLoader) installed}, the index
+ * provides the bytes returned by {@link LaunchClassLoader#getClassBytes(String)},
+ * which are passed to the transformers. Sources are indexed in class path
+ * order until the first source that cannot be indexed (e.g. a remote URL or
+ * a Zip64 jar). Classes in that and all later sources are still loaded
+ * using the regular resource lookup, so the order of the class path is
+ * always respected.</p>
+ */
+public final class ClassPathIndex implements Closeable {
+
+    private static final String CLASS_EXTENSION = ".class";
+    private static final String META_INF = "META-INF/";
+
+    // Zip format, see https://pkware.cachefly.net/webdocs/casestudies/APPNOTE.TXT
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int END_LENGTH = 22;
+    private static final int MAX_COMMENT_LENGTH = 0xffff;
+    private static final int CENTRAL_SIGNATURE = 0x02014b50;
+    private static final int CENTRAL_LENGTH = 46;
+    private static final int LOCAL_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_LENGTH = 30;
+    private static final int ZIP64_MAGIC = 0xffff;
+
+    private static final int FLAG_ENCRYPTED = 1;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+
+    private static final ThreadLocal<Buffers> buffers = new ThreadLocal<Buffers>() {
+
+        @Override
+        protected Buffers initialValue() {
+            return new Buffers();
+        }
+    };
+
+    private final Map<String, Location> classes;
+    private final ImmutableList<RandomAccessFile> files;
+    private final int sources;
+
+    private ClassPathIndex(Map<String, Location> classes, ImmutableList<RandomAccessFile> files, int sources) {
+        this.classes = classes;
+        this.files = files;
+        this.sources = sources;
+    }
+
+    /**
+     * Builds the index for the specified class path.
+     *
+     * @param sources The class path, in lookup order
+     * @return The class path index
+     * @throws IOException If an error occurs while reading the sources
+     */
+    public static ClassPathIndex build(List<URL> sources) throws IOException {
+        Map<String, Location> classes = Maps.newHashMap();
+        ImmutableList.Builder<RandomAccessFile> files = ImmutableList.builder();
+
+        int indexed = 0;
+        try {
+            for (URL url : sources) {
+                File file;
+                try {
+                    file = new File(url.toURI());
+                } catch (URISyntaxException e) {
+                    break;
+                } catch (IllegalArgumentException e) {
+                    break; // Not a file URL
+                }
+
+                if (file.isDirectory()) {
+                    indexDirectory(file, "", classes);
+                } else if (file.isFile()) {
+                    RandomAccessFile jar = new RandomAccessFile(file, "r");
+                    files.add(jar);
+                    if (!indexJar(jar, classes)) {
+                        break;
+                    }
+                } else if (file.exists()) {
+                    break;
+                }
+                // Missing sources do not provide any classes
+
+                indexed++;
+            }
+        } catch (IOException e) {
+            for (RandomAccessFile file : files.build()) {
+                file.close();
+            }
+            throw e;
+        }
+
+        return new ClassPathIndex(classes, files.build(), indexed);
+    }
+
+    /**
+     * Builds the index for the sources of the specified class loader and
+     * reads the class bytes for the class loader from the index.
+     *
+     * @param loader The class loader
+     * @return The installed class path index
+     * @throws IOException If an error occurs while reading the sources
+     */
+    public static ClassPathIndex install(LaunchClassLoader loader) throws IOException {
+        ClassPathIndex index = build(loader.getSources());
+
+        // LaunchClassLoader.getClassBytes checks the resource cache before looking up the resource
+        ClassPathIndex previous = ResourceCache.install(loader).setIndex(index);
+        if (previous != null) {
+            previous.close();
+        }
+
+        LogWrapper.fine("Indexed %d classes in %d of %d class path entries", index.size(), index.sources, loader.getSources().size());
+        return index;
+    }
+
+    /**
+     * Installs the class path index on the specified class loader, logging a
+     * warning instead of failing if the sources cannot be indexed. Classes
+     * are then loaded using the regular resource lookup.
+     *
+     * @param loader The class loader
+     * @return The installed class path index, or {@code null} if the index
+     *     could not be built
+     */
+    @Nullable
+    public static ClassPathIndex tryInstall(LaunchClassLoader loader) {
+        try {
+            return install(loader);
+        } catch (IOException e) {
+            LogWrapper.warning("Failed to index the class path: %s", e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the class path index installed on the specified class loader.
+     *
+     * @param loader The class loader
+     * @return The installed index, or {@code null} if no index is installed
+     */
+    @Nullable
+    public static ClassPathIndex get(LaunchClassLoader loader) {
+        ResourceCache resourceCache = ResourceCache.get(loader);
+        return resourceCache != null ? resourceCache.getIndex() : null;
+    }
+
+    /**
+     * Returns whether the class is provided by the index.
+     *
+     * @param name The class name
+     * @return {@code true} if the class was indexed
+     */
+    public boolean contains(String name) {
+        Location location = this.classes.get(name);
+        return location != null && location != Location.UNSUPPORTED;
+    }
+
+    /**
+     * Reads the bytes of the specified class.
+     *
+     * @param name The class name
+     * @return The class bytes, or {@code null} if the class was not indexed
+     * @throws IOException If an error occurs while reading the class
+     */
+    @Nullable
+    public byte[] read(String name) throws IOException {
+        Location location = this.classes.get(name);
+        return location != null ? location.read() : null;
+    }
+
+    /**
+     * Returns the names of all indexed classes.
+     *
+     * @return The class names
+     */
+    public ImmutableSet<String> getClassNames() {
+        ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+        for (Map.Entry<String, Location> entry : this.classes.entrySet()) {
+            if (entry.getValue() != Location.UNSUPPORTED) {
+                builder.add(entry.getKey());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the number of sources that were indexed. Only the first sources
+     * of the class path are indexed, up to the first source that cannot be
+     * indexed.
+     *
+     * @return The number of indexed sources
+     */
+    public int getIndexedSources() {
+        return this.sources;
+    }
+
+    /**
+     * Returns the number of indexed classes.
+     *
+     * @return The number of classes
+     */
+    public int size() {
+        return this.classes.size();
+    }
+
+    /**
+     * Closes the indexed jars. Classes can no longer be read afterwards.
+     *
+     * @throws IOException If an error occurs while closing a jar
+     */
+    @Override
+    public void close() throws IOException {
+        for (RandomAccessFile file : this.files) {
+            file.close();
+        }
+    }
+
+    private static void indexDirectory(File dir, String path, Map<String, Location> classes) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            String name = path + file.getName();
+            if (file.isDirectory()) {
+                indexDirectory(file, name + '/', classes);
+            } else {
+                addClass(name, new FileLocation(file), classes);
+            }
+        }
+    }
+
+    private static boolean indexJar(RandomAccessFile jar, Map<String, Location> classes) throws IOException {
+        long length = jar.length();
+        if (length < END_LENGTH) {
+            return false;
+        }
+
+        // Find the end of central directory record, followed by the archive comment
+        int tailLength = (int) Math.min(length, END_LENGTH + MAX_COMMENT_LENGTH);
+        ByteBuffer tail = ByteBuffer.allocate(tailLength).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(jar, tail.array(), tailLength, length - tailLength);
+
+        int end = -1;
+        for (int pos = tailLength - END_LENGTH; pos >= 0; pos--) {
+            if (tail.getInt(pos) == END_SIGNATURE && pos + END_LENGTH + (tail.getShort(pos + 20) & 0xffff) == tailLength) {
+                end = pos;
+                break;
+            }
+        }
+        if (end < 0) {
+            return false;
+        }
+
+        int entries = tail.getShort(end + 10) & 0xffff;
+        long directoryLength = tail.getInt(end + 12) & 0xffffffffL;
+        long directoryOffset = tail.getInt(end + 16) & 0xffffffffL;
+        if (entries == ZIP64_MAGIC || directoryOffset == 0xffffffffL) {
+            return false;
+        }
+
+        // Offsets are relative to the start of the archive, which may be prefixed with other data
+        long endOffset = length - tailLength + end;
+        long shift = endOffset - directoryLength - directoryOffset;
+        if (shift < 0 || directoryLength > Integer.MAX_VALUE) {
+            return false;
+        }
+
+        ByteBuffer directory = ByteBuffer.allocate((int) directoryLength).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(jar, directory.array(), (int) directoryLength, directoryOffset + shift);
+
+        byte[] nameBytes = new byte[256];
+        int pos = 0;
+        for (int i = 0; i < entries; i++) {
+            if (pos + CENTRAL_LENGTH > directoryLength || directory.getInt(pos) != CENTRAL_SIGNATURE) {
+                return false;
+            }
+
+            int flags = directory.getShort(pos + 8) & 0xffff;
+            int method = directory.getShort(pos + 10) & 0xffff;
+            long compressedSize = directory.getInt(pos + 20) & 0xffffffffL;
+            long size = directory.getInt(pos + 24) & 0xffffffffL;
+            int nameLength = directory.getShort(pos + 28) & 0xffff;
+            int extraLength = directory.getShort(pos + 30) & 0xffff;
+            int commentLength = directory.getShort(pos + 32) & 0xffff;
+            long offset = directory.getInt(pos + 42) & 0xffffffffL;
+
+            if (nameLength > nameBytes.length) {
+                nameBytes = new byte[nameLength];
+            }
+            directory.position(pos + CENTRAL_LENGTH);
+            directory.get(nameBytes, 0, nameLength);
+            String name = new String(nameBytes, 0, nameLength, Charsets.UTF_8);
+
+            Location location;
+            if ((flags & FLAG_ENCRYPTED) != 0 || (method != METHOD_STORED && method != METHOD_DEFLATED)
+                    || compressedSize >= Integer.MAX_VALUE || size >= Integer.MAX_VALUE) {
+                // Left to the regular resource lookup
+                location = Location.UNSUPPORTED;
+            } else {
+                location = new JarLocation(jar, offset + shift, method == METHOD_DEFLATED, (int) compressedSize, (int) size);
+            }
+            addClass(name, location, classes);
+
+            pos += CENTRAL_LENGTH + nameLength + extraLength + commentLength;
+        }
+
+        return true;
+    }
+
+    private static void addClass(String path, Location location, Map<String, Location> classes) {
+        if (!path.endsWith(CLASS_EXTENSION) || path.startsWith(META_INF)) {
+            return;
+        }
+
+        String name = path.substring(0, path.length() - CLASS_EXTENSION.length()).replace('/', '.');
+        if (!classes.containsKey(name)) {
+            // Classes in earlier sources take precedence
+            classes.put(name, location);
+        }
+    }
+
+    private static void readFully(RandomAccessFile file, byte[] bytes, int length, long position) throws IOException {
+        // The file is shared by all threads reading classes from the same jar
+        synchronized (file) {
+            file.seek(position);
+            file.readFully(bytes, 0, length);
+        }
+    }
+
+    private static final class Buffers {
+
+        final ByteBuffer header = ByteBuffer.allocate(LOCAL_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        final Inflater inflater = new Inflater(true);
+        byte[] data = new byte[8192];
+
+        byte[] getData(int length) {
+            if (this.data.length < length) {
+                this.data = new byte[Math.max(length, this.data.length * 2)];
+            }
+            return this.data;
+        }
+
+    }
+
+    private abstract static class Location {
+
+        static final Location UNSUPPORTED = new Location() {
+
+            @Nullable
+            @Override
+            byte[] read() {
+                return null;
+            }
+        };
+
+        @Nullable
+        abstract byte[] read() throws IOException;
+
+    }
+
+    private static final class JarLocation extends Location {
+
+        private final RandomAccessFile jar;
+        private final long offset;
+        private final boolean deflated;
+        private final int compressedSize;
+        private final int size;
+
+        // Read from the local header on first access
+        private volatile long dataOffset = -1;
+
+        JarLocation(RandomAccessFile jar, long offset, boolean deflated, int compressedSize, int size) {
+            this.jar = jar;
+            this.offset = offset;
+            this.deflated = deflated;
+            this.compressedSize = compressedSize;
+            this.size = size;
+        }
+
+        @Override
+        byte[] read() throws IOException {
+            Buffers buffers = ClassPathIndex.buffers.get();
+
+            long dataOffset = this.dataOffset;
+            if (dataOffset < 0) {
+                ByteBuffer header = buffers.header;
+                readFully(this.jar, header.array(), LOCAL_LENGTH, this.offset);
+                if (header.getInt(0) != LOCAL_SIGNATURE) {
+                    throw new IOException("Invalid local header at offset " + this.offset);
+                }
+
+                this.dataOffset = dataOffset = this.offset + LOCAL_LENGTH + (header.getShort(26) & 0xffff) + (header.getShort(28) & 0xffff);
+            }
+
+            byte[] bytes = new byte[this.size];
+            if (!this.deflated) {
+                readFully(this.jar, bytes, this.size, dataOffset);
+                return bytes;
+            }
+
+            // The inflater may need an additional dummy byte after the compressed data
+            byte[] data = buffers.getData(this.compressedSize + 1);
+            readFully(this.jar, data, this.compressedSize, dataOffset);
+            data[this.compressedSize] = 0;
+
+            Inflater inflater = buffers.inflater;
+            inflater.reset();
+            inflater.setInput(data, 0, this.compressedSize + 1);
+            try {
+                int pos = 0;
+                while (pos < this.size) {
+                    int read = inflater.inflate(bytes, pos, this.size - pos);
+                    if (read == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new EOFException("Unexpected end of compressed data at offset " + this.offset);
+                    }
+                    pos += read;
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Invalid compressed data at offset " + this.offset, e);
+            }
+
+            return bytes;
+        }
+
+    }
+
+    private static final class FileLocation extends Location {
+
+        private final File file;
+
+        FileLocation(File file) {
+            this.file = file;
+        }
+
+        @Nullable
+        @Override
+        byte[] read() throws IOException {
+            RandomAccessFile file;
+            try {
+                file = new RandomAccessFile(this.file, "r");
+            } catch (FileNotFoundException e) {
+                return null;
+            }
+
+            try {
+                long size = file.length();
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("Class file is too large: " + this.file);
+                }
+
+                byte[] bytes = new byte[(int) size];
+                file.readFully(bytes);
+                return bytes;
+            } finally {
+                file.close();
+            }
+        }
+
+    }
+
+}
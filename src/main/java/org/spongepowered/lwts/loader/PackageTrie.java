@@ -0,0 +1,154 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.loader;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Set of class name prefixes that are indexed by package segments. Checking
+ * whether a class name starts with any of the prefixes only depends on the
+ * number of segments of the class name, not on the number of prefixes.
+ *
+ * <p>The prefixes have the same semantics as the exclusions of the
+ * {@link net.minecraft.launchwrapper.LaunchClassLoader}: A class name matches
+ * if it starts with any of the prefixes. Prefixes do not need to end at a
+ * package boundary.</p>
+ */
+public final class PackageTrie {
+
+    private final Node root = new Node();
+    private int size;
+
+    /**
+     * Adds a prefix to this trie.
+     *
+     * @param prefix The prefix to add
+     * @return {@code true} if the prefix was added, {@code false} if it is
+     *     already covered by another prefix
+     */
+    public boolean add(String prefix) {
+        if (matches(prefix)) {
+            return false;
+        }
+
+        Node node = this.root;
+        int start = 0;
+        int pos;
+        while ((pos = prefix.indexOf('.', start)) >= 0) {
+            node = node.getOrCreateChild(prefix.substring(start, pos));
+            start = pos + 1;
+        }
+
+        if (start == prefix.length()) {
+            node.terminal = true;
+        } else {
+            node.addPartial(prefix.substring(start));
+        }
+
+        this.size++;
+        return true;
+    }
+
+    /**
+     * Returns whether the specified class name starts with any of the
+     * prefixes in this trie.
+     *
+     * @param name The class name
+     * @return {@code true} if the class name matches
+     */
+    public boolean matches(String name) {
+        Node node = this.root;
+        int start = 0;
+        while (true) {
+            if (node.terminal) {
+                return true;
+            }
+
+            if (node.partials != null) {
+                for (String partial : node.partials) {
+                    if (name.startsWith(partial, start)) {
+                        return true;
+                    }
+                }
+            }
+
+            int pos = name.indexOf('.', start);
+            if (pos < 0 || node.children == null) {
+                return false;
+            }
+
+            node = node.children.get(name.substring(start, pos));
+            if (node == null) {
+                return false;
+            }
+
+            start = pos + 1;
+        }
+    }
+
+    /**
+     * Returns the number of prefixes in this trie.
+     *
+     * @return The number of prefixes
+     */
+    public int size() {
+        return this.size;
+    }
+
+    private static final class Node {
+
+        private boolean terminal;
+        @Nullable private Map<String, Node> children;
+        @Nullable private List<String> partials;
+
+        private Node getOrCreateChild(String segment) {
+            if (this.children == null) {
+                this.children = Maps.newHashMap();
+            }
+
+            Node child = this.children.get(segment);
+            if (child == null) {
+                child = new Node();
+                this.children.put(segment, child);
+            }
+            return child;
+        }
+
+        private void addPartial(String partial) {
+            if (this.partials == null) {
+                this.partials = Lists.newArrayListWithCapacity(2);
+            }
+            this.partials.add(partial);
+        }
+
+    }
+
+}
@@ -0,0 +1,234 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.loader;
+
+import com.google.common.base.Throwables;
+import com.google.common.io.ByteStreams;
+import net.minecraft.launchwrapper.LaunchClassLoader;
+import net.minecraft.launchwrapper.LogWrapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+/**
+ * Replacement for the resource cache of the {@link LaunchClassLoader}, which
+ * {@link LaunchClassLoader#getClassBytes(String)} checks before looking up
+ * the class resource.
+ *
+ * <p>Classes that are not cached are read from the {@link ClassPathIndex}, if
+ * one is installed. Classes read from the index are not added to the cache,
+ * but each thread keeps the last class it read until it is requested again:
+ * {@code LaunchClassLoader.findClass} requests the bytes of classes in jars
+ * with a manifest twice, once while defining their package and once to
+ * transform them. The class loader still looks up the resource of each class
+ * to determine its code source, only reading the bytes is replaced.</p>
+ *
+ * <p>The cache can also be cleared safely while classes are loaded
+ * concurrently: Classes that were removed between the
+ * {@link #containsKey(Object)} and {@link #get(Object)} calls of the class
+ * loader are read again. Classes that cannot be read are logged and handled
+ * by the class loader like missing classes.</p>
+ */
+final class ResourceCache extends ConcurrentHashMap<String, byte[]> {
+
+    private static final long serialVersionUID = 1;
+
+    private final transient LaunchClassLoader loader;
+    @Nullable private transient volatile ClassPathIndex index;
+    private final transient ThreadLocal<IndexedClass> lastIndexed = new ThreadLocal<IndexedClass>();
+
+    private ResourceCache(LaunchClassLoader loader, Map<String, byte[]> resourceCache) {
+        super(resourceCache);
+        this.loader = loader;
+    }
+
+    /**
+     * Returns the resource cache installed on the specified class loader.
+     *
+     * @param loader The class loader
+     * @return The resource cache, or {@code null} if it was not installed
+     */
+    @Nullable
+    static ResourceCache get(LaunchClassLoader loader) {
+        Map<String, byte[]> resourceCache = getResourceCache(loader);
+        return resourceCache instanceof ResourceCache ? (ResourceCache) resourceCache : null;
+    }
+
+    /**
+     * Replaces the resource cache of the specified class loader, keeping all
+     * cached classes. Does nothing if it was already replaced.
+     *
+     * @param loader The class loader
+     * @return The installed resource cache
+     */
+    static ResourceCache install(LaunchClassLoader loader) {
+        synchronized (ResourceCache.class) {
+            Map<String, byte[]> resourceCache = getResourceCache(loader);
+            if (resourceCache instanceof ResourceCache) {
+                return (ResourceCache) resourceCache;
+            }
+
+            ResourceCache result = new ResourceCache(loader, resourceCache);
+            try {
+                getResourceCacheField().set(loader, result);
+            } catch (IllegalAccessException e) {
+                throw Throwables.propagate(e);
+            }
+            return result;
+        }
+    }
+
+    @Nullable
+    ClassPathIndex getIndex() {
+        return this.index;
+    }
+
+    /**
+     * Sets the index used to read classes that are not cached.
+     *
+     * @param index The class path index
+     * @return The previous index, or {@code null} if none was set
+     */
+    @Nullable
+    ClassPathIndex setIndex(ClassPathIndex index) {
+        ClassPathIndex previous = this.index;
+        this.index = index;
+        return previous;
+    }
+
+    /**
+     * Returns the total size of all cached classes.
+     *
+     * @return The cached bytes
+     */
+    long getCachedBytes() {
+        long size = 0;
+        for (byte[] bytes : values()) {
+            size += bytes.length;
+        }
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        // ConcurrentHashMap.containsKey calls get, which would read the class from the index
+        if (super.get(key) != null) {
+            return true;
+        }
+
+        ClassPathIndex index = this.index;
+        return index != null && key instanceof String && index.contains((String) key);
+    }
+
+    @Override
+    public byte[] get(Object key) {
+        byte[] bytes = super.get(key);
+        if (bytes == null && key instanceof String) {
+            String name = (String) key;
+            ClassPathIndex index = this.index;
+            if (index != null) {
+                IndexedClass last = this.lastIndexed.get();
+                if (last != null && last.name.equals(name)) {
+                    this.lastIndexed.remove();
+                    return last.bytes;
+                }
+
+                try {
+                    bytes = index.read(name);
+                    if (bytes != null) {
+                        this.lastIndexed.set(new IndexedClass(name, bytes));
+                    }
+                } catch (IOException e) {
+                    LogWrapper.warning("Failed to read class %s from the class path index: %s", name, e);
+                }
+            }
+
+            if (bytes == null) {
+                // Removed after the class loader checked the cache, or not readable from the index
+                try {
+                    bytes = readClass(name);
+                } catch (IOException e) {
+                    // The class loader handles missing class bytes like a missing class
+                    LogWrapper.warning("Failed to read class %s: %s", name, e);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    @Nullable
+    private byte[] readClass(String name) throws IOException {
+        URL url = this.loader.findResource(name.replace('.', '/').concat(".class"));
+        if (url == null) {
+            return null;
+        }
+
+        InputStream in = url.openStream();
+        try {
+            return ByteStreams.toByteArray(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, byte[]> getResourceCache(LaunchClassLoader loader) {
+        try {
+            return (Map<String, byte[]>) getResourceCacheField().get(loader);
+        } catch (IllegalAccessException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private static Field getResourceCacheField() {
+        // LaunchClassLoader does not allow providing or releasing the class bytes
+        try {
+            Field field = LaunchClassLoader.class.getDeclaredField("resourceCache");
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private static final class IndexedClass {
+
+        final String name;
+        final byte[] bytes;
+
+        IndexedClass(String name, byte[] bytes) {
+            this.name = name;
+            this.bytes = bytes;
+        }
+
+    }
+
+}
@@ -0,0 +1,224 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.profile;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.escape.Escaper;
+import com.google.common.io.Files;
+import com.google.common.xml.XmlEscapers;
+import net.minecraft.launchwrapper.LogWrapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+/**
+ * Records the time spent and the memory allocated in each phase of the
+ * Launchwrapper bootstrap. Phases are separated by calls to
+ * {@link #startPhase(String)}, which ends the current phase and starts a new
+ * one. All calls are ignored unless the profiler was started.
+ *
+ * <p>The allocated memory is only available on JVMs that support measuring
+ * the allocations of a thread (e.g. HotSpot), and only for phases started
+ * and ended on the bootstrapping thread.</p>
+ */
+public final class StartupProfiler {
+
+    /**
+     * The name of the JUnit XML report written by {@link #finish(File)}.
+     */
+    public static final String REPORT_FILE = "TEST-lwts-startup.xml";
+
+    private static final String SUITE_NAME = "lwts.startup";
+    private static final long UNKNOWN = -1;
+
+    @Nullable private static volatile StartupProfiler current;
+
+    private final long threadId = Thread.currentThread().getId();
+    @Nullable private final com.sun.management.ThreadMXBean threadBean = getThreadBean();
+
+    // Guarded by this
+    private final List<Phase> phases = Lists.newArrayList();
+    private String phase;
+    private long start;
+    private long allocated;
+
+    private StartupProfiler(String phase) {
+        begin(phase);
+    }
+
+    /**
+     * Starts profiling the bootstrap on the current thread.
+     *
+     * @param phase The name of the first phase
+     */
+    public static void start(String phase) {
+        current = new StartupProfiler(phase);
+    }
+
+    /**
+     * Ends the current phase and starts a new phase with the specified name.
+     * Does nothing if the profiler was not started.
+     *
+     * @param phase The name of the new phase
+     */
+    public static void startPhase(String phase) {
+        StartupProfiler profiler = current;
+        if (profiler != null) {
+            profiler.next(phase);
+        }
+    }
+
+    /**
+     * Ends the current phase and the profiling, logs the recorded phases and
+     * writes them to a JUnit XML report ({@value #REPORT_FILE}) in the
+     * specified directory. Does nothing if the profiler was not started.
+     *
+     * @param dir The report directory
+     * @throws IOException If an error occurs while writing the report
+     */
+    public static void finish(File dir) throws IOException {
+        StartupProfiler profiler = current;
+        if (profiler == null) {
+            return;
+        }
+        current = null;
+
+        ImmutableList<Phase> phases = profiler.end();
+
+        long totalTime = 0;
+        long totalAllocated = 0;
+        for (Phase phase : phases) {
+            LogWrapper.info("LWTS startup: phase=%s time_ms=%.3f allocated_bytes=%d", phase.name, toMillis(phase.time), phase.allocated);
+            totalTime += phase.time;
+            totalAllocated = phase.allocated != UNKNOWN && totalAllocated != UNKNOWN ? totalAllocated + phase.allocated : UNKNOWN;
+        }
+        LogWrapper.info("LWTS startup: phase=total time_ms=%.3f allocated_bytes=%d", toMillis(totalTime), totalAllocated);
+
+        writeReport(new File(dir, REPORT_FILE), phases, totalTime);
+    }
+
+    private synchronized void next(String phase) {
+        this.phases.add(createPhase());
+        begin(phase);
+    }
+
+    private synchronized ImmutableList<Phase> end() {
+        this.phases.add(createPhase());
+        return ImmutableList.copyOf(this.phases);
+    }
+
+    private void begin(String phase) {
+        this.phase = phase;
+        this.allocated = getAllocatedBytes();
+        this.start = System.nanoTime();
+    }
+
+    private Phase createPhase() {
+        long time = System.nanoTime() - this.start;
+        long allocated = getAllocatedBytes();
+        return new Phase(this.phase, time, allocated != UNKNOWN && this.allocated != UNKNOWN ? allocated - this.allocated : UNKNOWN);
+    }
+
+    private long getAllocatedBytes() {
+        if (this.threadBean == null || Thread.currentThread().getId() != this.threadId) {
+            return UNKNOWN;
+        }
+        return this.threadBean.getThreadAllocatedBytes(this.threadId);
+    }
+
+    @Nullable
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+                if (threadBean.isThreadAllocatedMemorySupported()) {
+                    threadBean.setThreadAllocatedMemoryEnabled(true);
+                    return threadBean;
+                }
+            }
+        } catch (LinkageError ignored) {
+            // Not supported by this JVM
+        }
+
+        return null;
+    }
+
+    private static void writeReport(File file, List<Phase> phases, long totalTime) throws IOException {
+        Escaper escaper = XmlEscapers.xmlAttributeEscaper();
+
+        StringBuilder builder = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        builder.append("<testsuite name=\"").append(SUITE_NAME).append("\" tests=\"").append(phases.size())
+                .append("\" failures=\"0\" errors=\"0\" skipped=\"0\" time=\"").append(toSeconds(totalTime)).append("\">\n");
+
+        builder.append("  <properties>\n");
+        for (Phase phase : phases) {
+            builder.append("    <property name=\"").append(escaper.escape(phase.name)).append(".allocated_bytes\" value=\"")
+                    .append(phase.allocated).append("\"/>\n");
+        }
+        builder.append("  </properties>\n");
+
+        for (Phase phase : phases) {
+            builder.append("  <testcase classname=\"").append(SUITE_NAME).append("\" name=\"").append(escaper.escape(phase.name))
+                    .append("\" time=\"").append(toSeconds(phase.time)).append("\"/>\n");
+        }
+        builder.append("</testsuite>\n");
+
+        Files.createParentDirs(file);
+        Files.write(builder, file, Charsets.UTF_8);
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static String toSeconds(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private static final class Phase {
+
+        private final String name;
+        private final long time;
+        private final long allocated;
+
+        private Phase(String name, long time, long allocated) {
+            this.name = name;
+            this.time = time;
+            this.allocated = allocated;
+        }
+
+    }
+
+}
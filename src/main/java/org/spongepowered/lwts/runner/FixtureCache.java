@@ -0,0 +1,234 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.runner;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.spongepowered.lwts.runner.LaunchWrapperTestRunner.FIXTURE_CACHE_SIZE_PROPERTY;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import net.minecraft.launchwrapper.LogWrapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Caches expensive test fixtures (e.g. worlds built from transformed
+ * classes) so they only need to be created once per JVM instead of once per
+ * test class.
+ *
+ * <p>Fixtures are identified by their name and the class loader context
+ * they were created in. The same fixture is only shared by test classes
+ * loaded by the same class loader, since the classes of other class loaders
+ * (e.g. with {@code lwts.isolation}) are not compatible. The cache is
+ * thread-safe: If a fixture is requested concurrently by parallel runners,
+ * it is only created once and all other callers wait for the result.</p>
+ *
+ * <p>The number of cached fixtures is bounded (see
+ * {@link LaunchWrapperTestRunner#FIXTURE_CACHE_SIZE_PROPERTY}), the least
+ * recently used fixtures are evicted first. Fixtures implementing
+ * {@link Closeable} are closed when they are evicted and when the JVM shuts
+ * down. The cache should therefore be large enough for all fixtures used
+ * concurrently. Fixtures created in an isolated class loader cannot be
+ * shared with other test classes, so they are removed as soon as the test
+ * class has finished. Removing them also releases the class loader, which
+ * is strongly referenced by the cached fixtures and their classes.</p>
+ *
+ * <pre>
+ * private static World world;
+ *
+ * &#64;BeforeClass
+ * public static void setupWorld() throws Exception {
+ *     world = FixtureCache.get(WorldTest.class, "world", new Callable&lt;World&gt;() {
+ *
+ *         &#64;Override
+ *         public World call() {
+ *             return TestWorlds.create();
+ *         }
+ *     });
+ * }
+ * </pre>
+ */
+public final class FixtureCache {
+
+    private static final int DEFAULT_SIZE = 16;
+
+    private static final Cache<Key, Object> fixtures = CacheBuilder.newBuilder()
+            .maximumSize(Integer.getInteger(FIXTURE_CACHE_SIZE_PROPERTY, DEFAULT_SIZE))
+            .concurrencyLevel(1) // Single segment to evict the least recently used fixture across all keys
+            .removalListener(new RemovalListener<Key, Object>() {
+
+                @Override
+                public void onRemoval(RemovalNotification<Key, Object> notification) {
+                    close(notification.getKey(), notification.getValue());
+                }
+            })
+            .recordStats()
+            .build();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread("LWTS fixture cleanup") {
+
+            @Override
+            public void run() {
+                CacheStats stats = fixtures.stats();
+                LogWrapper.fine("Fixture cache: %d hits, %d misses, %d evictions", stats.hitCount(), stats.missCount(), stats.evictionCount());
+                fixtures.invalidateAll();
+            }
+        });
+    }
+
+    private FixtureCache() {
+    }
+
+    /**
+     * Returns the fixture with the specified name, creating it if it is not
+     * cached yet. The fixture is shared with all test classes loaded by the
+     * same class loader as the context class.
+     *
+     * @param context The class whose class loader the fixture belongs to,
+     *     usually the test class
+     * @param name The name of the fixture
+     * @param factory The factory creating the fixture, must not return
+     *     {@code null}
+     * @param <T> The type of the fixture
+     * @return The cached or created fixture
+     * @throws Exception If the factory fails to create the fixture
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T get(Class<?> context, String name, final Callable<? extends T> factory) throws Exception {
+        checkNotNull(factory, "factory");
+        try {
+            return (T) fixtures.get(new Key(context.getClassLoader(), name), new Callable<Object>() {
+
+                @Override
+                public Object call() throws Exception {
+                    return checkNotNull(factory.call(), "Fixture factory returned null");
+                }
+            });
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (UncheckedExecutionException e) {
+            throw unwrap(e);
+        } catch (ExecutionError e) {
+            throw (Error) e.getCause();
+        }
+    }
+
+    /**
+     * Removes the fixture with the specified name from the cache, closing it
+     * if it implements {@link Closeable}.
+     *
+     * @param context The class whose class loader the fixture belongs to
+     * @param name The name of the fixture
+     */
+    public static void invalidate(Class<?> context, String name) {
+        fixtures.invalidate(new Key(context.getClassLoader(), name));
+    }
+
+    /**
+     * Removes all fixtures from the cache, closing those that implement
+     * {@link Closeable}.
+     */
+    public static void invalidateAll() {
+        fixtures.invalidateAll();
+    }
+
+    /**
+     * Removes all fixtures created in the specified class loader, closing
+     * those that implement {@link Closeable}.
+     *
+     * @param loader The class loader
+     */
+    static void invalidate(ClassLoader loader) {
+        for (Key key : fixtures.asMap().keySet()) {
+            if (key.loader == loader) {
+                fixtures.invalidate(key);
+            }
+        }
+    }
+
+    private static Exception unwrap(Exception e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof Exception) {
+            return (Exception) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return e;
+    }
+
+    private static void close(Key key, Object fixture) {
+        if (fixture instanceof Closeable) {
+            try {
+                ((Closeable) fixture).close();
+            } catch (IOException e) {
+                LogWrapper.warning("Failed to close fixture %s: %s", key.name, e);
+            }
+        }
+    }
+
+    /**
+     * Identifies a fixture by its name and class loader. Class loaders are
+     * compared by identity.
+     */
+    private static final class Key {
+
+        private final ClassLoader loader;
+        private final String name;
+
+        private Key(ClassLoader loader, String name) {
+            this.loader = checkNotNull(loader, "loader");
+            this.name = checkNotNull(name, "name");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key) o;
+            return this.loader == key.loader && this.name.equals(key.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(this.loader) + this.name.hashCode();
+        }
+
+    }
+
+}
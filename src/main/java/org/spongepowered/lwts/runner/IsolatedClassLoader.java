@@ -0,0 +1,111 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.runner;
+
+import net.minecraft.launchwrapper.LaunchClassLoader;
+import org.spongepowered.lwts.loader.PackageTrie;
+
+import java.io.IOException;
+import java.security.SecureClassLoader;
+
+/**
+ * Child class loader of the {@link LaunchClassLoader} that defines its own
+ * copy of the isolated classes, so each test class gets a fresh static
+ * state. The transformed class bytes are shared by all instances using
+ * {@link SharedClassBytes}.
+ */
+final class IsolatedClassLoader extends SecureClassLoader {
+
+    private final SharedClassBytes shared;
+    private final PackageTrie isolated;
+
+    /**
+     * Creates a new isolated class loader.
+     *
+     * @param parent The class loader defining all classes that are not
+     *     isolated
+     * @param shared The transformed class bytes
+     * @param isolated The prefixes of the classes defined by this class
+     *     loader
+     */
+    IsolatedClassLoader(LaunchClassLoader parent, SharedClassBytes shared, PackageTrie isolated) {
+        super(parent);
+        this.shared = shared;
+        this.isolated = isolated;
+    }
+
+    /**
+     * Returns whether the class is defined by this class loader.
+     *
+     * @param name The class name
+     * @return {@code true} if the class is isolated
+     */
+    boolean isIsolated(String name) {
+        return this.isolated.matches(name) && !this.shared.isExcluded(name);
+    }
+
+    @Override
+    protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (!isIsolated(name)) {
+            return super.loadClass(name, resolve);
+        }
+
+        // Isolated classes are always defined by this class loader, never by the parent
+        Class<?> result = findLoadedClass(name);
+        if (result == null) {
+            result = findClass(name);
+        }
+
+        if (resolve) {
+            resolveClass(result);
+        }
+        return result;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        SharedClassBytes.Entry entry;
+        try {
+            entry = this.shared.get(name);
+        } catch (IOException e) {
+            throw new ClassNotFoundException(name, e);
+        }
+
+        if (entry == null) {
+            throw new ClassNotFoundException(name);
+        }
+
+        int pos = name.lastIndexOf('.');
+        if (pos >= 0) {
+            String packageName = name.substring(0, pos);
+            if (getPackage(packageName) == null) {
+                definePackage(packageName, null, null, null, null, null, null, null);
+            }
+        }
+
+        return defineClass(name, entry.bytes, 0, entry.bytes.length, entry.codeSource);
+    }
+
+}
@@ -0,0 +1,499 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.runner;
+
+import static com.google.common.base.Preconditions.checkState;
+import static org.spongepowered.lwts.runner.LaunchWrapperTestRunner.CACHE_PROPERTY;
+import static org.spongepowered.lwts.runner.LaunchWrapperTestRunner.CACHE_SIZE_PROPERTY;
+import static org.spongepowered.lwts.runner.LaunchWrapperTestRunner.DUMP_DIR_PROPERTY;
+import static org.spongepowered.lwts.runner.LaunchWrapperTestRunner.DUMP_PROPERTY;
+import static org.spongepowered.lwts.runner.LaunchWrapperTestRunner.ISOLATION_PACKAGES_PROPERTY;
+import static org.spongepowered.lwts.runner.LaunchWrapperTestRunner.ISOLATION_PROPERTY;
+import static org.spongepowered.lwts.runner.LaunchWrapperTestRunner.ISOLATION_SIZE_PROPERTY;
+import static org.spongepowered.lwts.runner.LaunchWrapperTestRunner.MEMORY_SAVING_PROPERTY;
+import static org.spongepowered.lwts.runner.LaunchWrapperTestRunner.PROFILE_PROPERTY;
+import static org.spongepowered.lwts.runner.LaunchWrapperTestRunner.SNAPSHOT_PROPERTY;
+import static org.spongepowered.lwts.runner.LaunchWrapperTestRunner.SNAPSHOT_ROOTS_PROPERTY;
+import static org.spongepowered.lwts.runner.LaunchWrapperTestRunner.STARTUP_PROFILE_PROPERTY;
+import static org.spongepowered.lwts.runner.LaunchWrapperTestRunner.TWEAKER_PROPERTY;
+import static org.spongepowered.lwts.runner.LaunchWrapperTestRunner.WARMUP_PACKAGES_PROPERTY;
+import static org.spongepowered.lwts.runner.LaunchWrapperTestRunner.WARMUP_PROPERTY;
+import static org.spongepowered.lwts.runner.LaunchWrapperTestRunner.WARMUP_THREADS_PROPERTY;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import com.google.common.hash.HashCode;
+import net.minecraft.launchwrapper.IClassTransformer;
+import net.minecraft.launchwrapper.Launch;
+import net.minecraft.launchwrapper.LogWrapper;
+import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.Statement;
+import org.spongepowered.lwts.AbstractTestTweaker;
+import org.spongepowered.lwts.loader.ClassByteCaches;
+import org.spongepowered.lwts.loader.PackageTrie;
+import org.spongepowered.lwts.profile.StartupProfiler;
+import org.spongepowered.lwts.snapshot.LaunchSnapshot;
+import org.spongepowered.lwts.snapshot.SnapshotTweaker;
+import org.spongepowered.lwts.transformer.AccessTransformer;
+import org.spongepowered.lwts.transformer.TargetedTransformer;
+import org.spongepowered.lwts.transformer.TransformerChain;
+import org.spongepowered.lwts.transformer.TransformerTargets;
+import org.spongepowered.lwts.transformer.TransformerWarmUp;
+import org.spongepowered.lwts.transformer.cache.TransformedClassCache;
+import org.spongepowered.lwts.transformer.dump.TransformerDump;
+import org.spongepowered.lwts.transformer.profile.TransformerProfiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+/**
+ * Initializes the Launchwrapper context exactly once, even if multiple test
+ * runners are created concurrently.
+ */
+final class LaunchWrapperBootstrap {
+
+    private static final String DEFAULT_DUMP_DIR = "lwts-dump";
+    private static final long DEFAULT_ISOLATION_SIZE = 64 * 1024 * 1024;
+
+    private static final Splitter LIST_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+
+    private static volatile boolean initialized;
+    @Nullable private static Throwable failure;
+
+    @Nullable private static SharedClassBytes isolatedClasses;
+    @Nullable private static PackageTrie isolatedPackages;
+
+    // Whether the warm-up transformed classes that may not be loaded yet
+    private static final AtomicBoolean preparedClasses = new AtomicBoolean();
+
+    private static boolean memorySaving;
+    private static final AtomicLong releasedClassBytes = new AtomicLong();
+
+    private LaunchWrapperBootstrap() {
+    }
+
+    /**
+     * Initializes the Launchwrapper context if it wasn't initialized yet.
+     * Concurrent callers wait until the initialization has finished.
+     *
+     * @throws InitializationError If the initialization has failed
+     */
+    static void initialize() throws InitializationError {
+        if (!initialized) {
+            synchronized (LaunchWrapperBootstrap.class) {
+                if (!initialized) {
+                    try {
+                        bootstrap();
+                    } catch (Throwable e) {
+                        failure = e;
+                    }
+
+                    initialized = true;
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw new InitializationError(failure);
+        }
+    }
+
+    /**
+     * Returns a statement that releases the state that is no longer needed
+     * once the test class has finished:
+     *
+     * <ul>
+     *     <li>The fixtures of the test class are removed from the
+     *     {@link FixtureCache} if it was loaded by an isolated class loader.
+     *     These fixtures cannot be shared with other test classes.</li>
+     *     <li>Classes transformed by the warm-up that were not loaded by the
+     *     first test class are released.</li>
+     * </ul>
+     *
+     * @param statement The statement running the test class
+     * @param testClass The test class
+     * @return The statement
+     */
+    static Statement releaseAfter(final Statement statement, Class<?> testClass) {
+        final ClassLoader loader = testClass.getClassLoader() instanceof IsolatedClassLoader ? testClass.getClassLoader() : null;
+        if (loader == null && !preparedClasses.get()) {
+            return statement;
+        }
+
+        return new Statement() {
+
+            @Override
+            public void evaluate() throws Throwable {
+                try {
+                    statement.evaluate();
+                } finally {
+                    if (loader != null) {
+                        FixtureCache.invalidate(loader);
+                    }
+
+                    if (preparedClasses.compareAndSet(true, false)) {
+                        int released = TransformerChain.install(Launch.classLoader).clearPrepared();
+                        LogWrapper.fine("Released %d classes transformed ahead of time that were not loaded", released);
+                    }
+                }
+            }
+        };
+    }
+
+    private static void bootstrap() {
+        String tweakClass = System.getProperty(TWEAKER_PROPERTY);
+        if (Strings.isNullOrEmpty(tweakClass)) {
+            throw new RuntimeException("Missing system property " + TWEAKER_PROPERTY);
+        }
+
+        String startupProfileDir = System.getProperty(STARTUP_PROFILE_PROPERTY);
+        if (!Strings.isNullOrEmpty(startupProfileDir)) {
+            StartupProfiler.start("launch");
+        }
+
+        String cacheDir = System.getProperty(CACHE_PROPERTY);
+        String snapshotDir = System.getProperty(SNAPSHOT_PROPERTY);
+        if (!Strings.isNullOrEmpty(snapshotDir)) {
+            launchWithSnapshot(tweakClass, new File(snapshotDir), !Strings.isNullOrEmpty(cacheDir) ? new File(cacheDir) : null);
+        } else {
+            launch(tweakClass);
+            installChain(getTransformerTargets());
+
+            if (!Strings.isNullOrEmpty(cacheDir)) {
+                installCache(new File(cacheDir));
+            }
+        }
+
+        String profileDir = System.getProperty(PROFILE_PROPERTY);
+        if (!Strings.isNullOrEmpty(profileDir)) {
+            installProfiler(new File(profileDir));
+        }
+
+        String dumpClasses = System.getProperty(DUMP_PROPERTY);
+        if (!Strings.isNullOrEmpty(dumpClasses)) {
+            installDump(new File(System.getProperty(DUMP_DIR_PROPERTY, DEFAULT_DUMP_DIR)), dumpClasses);
+        }
+
+        String warmUpPackages = System.getProperty(WARMUP_PACKAGES_PROPERTY);
+        if (Boolean.getBoolean(WARMUP_PROPERTY) || !Strings.isNullOrEmpty(warmUpPackages)) {
+            StartupProfiler.startPhase("lwts.warmup");
+            warmUp(warmUpPackages);
+        }
+
+        if (Boolean.getBoolean(ISOLATION_PROPERTY)) {
+            isolatedClasses = new SharedClassBytes(Launch.classLoader, Long.getLong(ISOLATION_SIZE_PROPERTY, DEFAULT_ISOLATION_SIZE));
+            isolatedPackages = createPackageFilter(System.getProperty(ISOLATION_PACKAGES_PROPERTY));
+        }
+
+        if (Boolean.getBoolean(MEMORY_SAVING_PROPERTY)) {
+            StartupProfiler.startPhase("lwts.memory_saving");
+            enableMemorySaving();
+        }
+
+        if (!Strings.isNullOrEmpty(startupProfileDir)) {
+            try {
+                StartupProfiler.finish(new File(startupProfileDir));
+            } catch (IOException e) {
+                LogWrapper.warning("Failed to write startup profile: %s", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the class loader to load the specified test class with. This
+     * is either the {@link Launch#classLoader}, or a new isolated class
+     * loader if isolation is enabled. Unless the isolated packages are
+     * configured, only the package of the test class is isolated.
+     *
+     * @param testClass The test class
+     * @return The class loader for the test class
+     */
+    static ClassLoader createTestClassLoader(Class<?> testClass) {
+        if (isolatedClasses == null) {
+            return Launch.classLoader;
+        }
+
+        PackageTrie packages = isolatedPackages;
+        if (packages == null) {
+            String name = testClass.getName();
+            packages = new PackageTrie();
+            packages.add(name.substring(0, name.lastIndexOf('.') + 1));
+        }
+        return new IsolatedClassLoader(Launch.classLoader, isolatedClasses, packages);
+    }
+
+    /**
+     * Clears the class bytes cached by the {@link Launch#classLoader} and
+     * kept for the isolated classes if memory saving is enabled. Called
+     * after each test class was loaded.
+     */
+    static void releaseClassBytes() {
+        if (memorySaving) {
+            releasedClassBytes.addAndGet(ClassByteCaches.clear(Launch.classLoader));
+            if (isolatedClasses != null) {
+                releasedClassBytes.addAndGet(isolatedClasses.clear());
+            }
+        }
+    }
+
+    @Nullable
+    private static PackageTrie createPackageFilter(@Nullable String packages) {
+        if (Strings.isNullOrEmpty(packages)) {
+            return null;
+        }
+
+        PackageTrie filter = new PackageTrie();
+        for (String packageName : LIST_SPLITTER.split(packages)) {
+            filter.add(packageName);
+        }
+        return filter;
+    }
+
+    private static void launch(String tweakClass) {
+        // Normally, LaunchWrapper sets the thread's context class loader
+        // to the LaunchClassLoader. However, that causes issue as soon as
+        // tests are run in the normal class loader in the same thread.
+        // Simply resetting it seems to fix various issues with Mockito.
+        // Launchwrapper only changes the context class loader of the
+        // bootstrapping thread, other threads are not affected.
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+
+        try {
+            Launch.main(new String[]{"--tweakClass", tweakClass});
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+
+        StartupProfiler.startPhase("lwts.setup");
+
+        // All access transformers have been registered by the tweaker now,
+        // so the classes can be transformed concurrently from now on
+        for (IClassTransformer transformer : Launch.classLoader.getTransformers()) {
+            if (transformer instanceof AccessTransformer) {
+                ((AccessTransformer) transformer).freeze();
+            }
+        }
+    }
+
+    private static void launchWithSnapshot(String tweakClass, File dir, @Nullable File cacheDir) {
+        HashCode fingerprint = LaunchSnapshot.fingerprint(tweakClass, LaunchSnapshot.getClassPath(), getSnapshotRoots());
+
+        LaunchSnapshot snapshot = LaunchSnapshot.read(dir, fingerprint);
+        if (snapshot != null) {
+            SnapshotTweaker.setSnapshot(snapshot);
+            launch(SnapshotTweaker.class.getName());
+            installChain(snapshot.getTransformerTargets());
+        } else {
+            launch(tweakClass);
+
+            AbstractTestTweaker tweaker = getTweaker();
+            if (tweaker != null && tweaker.isSnapshotSupported()) {
+                snapshot = LaunchSnapshot.capture(fingerprint, Launch.classLoader, Launch.classLoader.getTransformers(),
+                        tweaker.getTransformerTargets(), tweaker.getLaunchTarget(), tweaker.getLaunchArguments());
+                try {
+                    snapshot.write(dir);
+                } catch (IOException e) {
+                    LogWrapper.warning("Failed to write snapshot: %s", e);
+                }
+            }
+
+            installChain(getTransformerTargets());
+        }
+
+        if (cacheDir != null) {
+            // The snapshot is bound to the class path, so its fingerprint also covers the transformed classes
+            try {
+                installCache(openCache(cacheDir, tweakClass, fingerprint));
+            } catch (IOException e) {
+                throw Throwables.propagate(e);
+            }
+        }
+    }
+
+    @Nullable
+    private static Set<File> getSnapshotRoots() {
+        String roots = System.getProperty(SNAPSHOT_ROOTS_PROPERTY);
+        if (roots == null) {
+            return null;
+        }
+
+        Set<File> result = Sets.newHashSet();
+        for (String root : LIST_SPLITTER.split(roots)) {
+            result.add(new File(root).getAbsoluteFile());
+        }
+        return result;
+    }
+
+    @Nullable
+    private static AbstractTestTweaker getTweaker() {
+        return (AbstractTestTweaker) Launch.blackboard.get(AbstractTestTweaker.BLACKBOARD_KEY);
+    }
+
+    private static Map<String, TransformerTargets> getTransformerTargets() {
+        AbstractTestTweaker tweaker = getTweaker();
+        return tweaker != null ? tweaker.getTransformerTargets() : ImmutableMap.<String, TransformerTargets>of();
+    }
+
+    private static void installChain(Map<String, TransformerTargets> targets) {
+        // Classes are only passed to the transformers that target them
+        TransformerChain.install(Launch.classLoader, targets);
+    }
+
+    private static void installCache(File dir) {
+        AbstractTestTweaker tweaker = getTweaker();
+        checkState(tweaker != null, "The transformed class cache requires a tweaker extending AbstractTestTweaker");
+
+        List<IClassTransformer> transformers = TransformerChain.install(Launch.classLoader).getTransformers();
+        try {
+            HashCode fingerprint = TransformedClassCache.fingerprint(tweaker.getClass(), transformers, tweaker.getConfigurations());
+            installCache(openCache(dir, tweaker.getClass().getName(), fingerprint));
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private static void installCache(final TransformedClassCache cache) {
+        TransformerChain.install(Launch.classLoader).setCache(cache);
+
+        Runtime.getRuntime().addShutdownHook(new Thread("LWTS cache writer") {
+
+            @Override
+            public void run() {
+                LogWrapper.info("Transformed class cache: %d hits, %d misses", cache.getHits(), cache.getMisses());
+                try {
+                    cache.save();
+                } catch (IOException e) {
+                    LogWrapper.warning("Failed to save transformed class cache: %s", e);
+                }
+            }
+        });
+    }
+
+    private static TransformedClassCache openCache(File dir, String tweakClass, HashCode fingerprint) throws IOException {
+        // Each tweaker has its own directory, so test tasks sharing the cache directory keep their caches
+        File tweakerDir = new File(dir, tweakClass);
+        Integer maxSize = Integer.getInteger(CACHE_SIZE_PROPERTY);
+        if (maxSize == null) {
+            return TransformedClassCache.open(tweakerDir, fingerprint);
+        }
+        return TransformedClassCache.open(tweakerDir, fingerprint, maxSize * 1024L * 1024L);
+    }
+
+    private static void installProfiler(final File dir) {
+        TransformerChain chain = TransformerChain.install(Launch.classLoader);
+        final TransformerProfiler profiler = new TransformerProfiler(chain.getTransformers());
+        chain.setProfiler(profiler);
+
+        Runtime.getRuntime().addShutdownHook(new Thread("LWTS profile writer") {
+
+            @Override
+            public void run() {
+                try {
+                    profiler.write(dir);
+                } catch (IOException e) {
+                    LogWrapper.warning("Failed to write transformer profile: %s", e);
+                }
+            }
+        });
+    }
+
+    private static void installDump(File dir, String classes) {
+        TransformerChain chain = TransformerChain.install(Launch.classLoader);
+        final TransformerDump dump = new TransformerDump(dir, chain.getTransformers(), classes);
+        chain.setDump(dump);
+
+        Runtime.getRuntime().addShutdownHook(new Thread("LWTS dump report writer") {
+
+            @Override
+            public void run() {
+                try {
+                    dump.finish();
+                } catch (IOException e) {
+                    LogWrapper.warning("Failed to write transformer dump report: %s", e);
+                }
+            }
+        });
+    }
+
+    private static void enableMemorySaving() {
+        int releasedRules = 0;
+        for (IClassTransformer transformer : TransformerChain.install(Launch.classLoader).getTransformers()) {
+            if (transformer instanceof AccessTransformer) {
+                releasedRules += ((AccessTransformer) transformer).releaseTransformedRules();
+            }
+        }
+
+        long classBytes = ClassByteCaches.clear(Launch.classLoader);
+        releasedClassBytes.addAndGet(classBytes);
+        memorySaving = true;
+
+        LogWrapper.info("Memory saving: released %d bytes of cached classes and the access transformer rules of %d classes",
+                classBytes, releasedRules);
+
+        Runtime.getRuntime().addShutdownHook(new Thread("LWTS memory report") {
+
+            @Override
+            public void run() {
+                LogWrapper.info("Memory saving: released %d bytes of cached classes in total", releasedClassBytes.get());
+            }
+        });
+    }
+
+    private static void warmUp(@Nullable String packages) {
+        TransformerChain chain = TransformerChain.install(Launch.classLoader);
+        TransformerWarmUp warmUp = new TransformerWarmUp(Launch.classLoader, chain);
+
+        Set<String> classNames = Sets.newLinkedHashSet();
+        for (IClassTransformer transformer : chain.getTransformers()) {
+            if (transformer instanceof TargetedTransformer) {
+                classNames.addAll(((TargetedTransformer) transformer).getTargets().getClassNames());
+            }
+        }
+
+        if (!Strings.isNullOrEmpty(packages)) {
+            try {
+                classNames.addAll(warmUp.findClasses(LIST_SPLITTER.splitToList(packages)));
+            } catch (IOException e) {
+                throw Throwables.propagate(e);
+            }
+        }
+
+        int threads = Integer.getInteger(WARMUP_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+        warmUp.run(classNames, threads);
+        preparedClasses.set(true);
+    }
+
+}
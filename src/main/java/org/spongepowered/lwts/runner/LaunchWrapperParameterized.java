@@ -25,7 +25,9 @@
 package org.spongepowered.lwts.runner;
 
 import org.junit.runner.RunWith;
+import org.junit.runner.notification.RunNotifier;
 import org.junit.runners.Parameterized;
+import org.junit.runners.model.Statement;
 
 /**
  * {@link Parameterized} test runner for JUnit. To run a parameterized test
@@ -45,4 +47,9 @@ public LaunchWrapperParameterized(Class<?> klass) throws Throwable {
         super(LaunchWrapperTestRunner.loadTestClass(klass));
     }
 
+    @Override
+    protected Statement classBlock(RunNotifier notifier) {
+        return LaunchWrapperBootstrap.releaseAfter(super.classBlock(notifier), getTestClass().getJavaClass());
+    }
+
 }
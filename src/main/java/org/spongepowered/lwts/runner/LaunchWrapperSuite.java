@@ -0,0 +1,84 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.runner;
+
+import static org.spongepowered.lwts.runner.LaunchWrapperTestRunner.PARALLEL_PROPERTY;
+import static org.spongepowered.lwts.runner.LaunchWrapperTestRunner.PARALLEL_THREADS_PROPERTY;
+
+import org.junit.runner.RunWith;
+import org.junit.runner.Runner;
+import org.junit.runners.Suite;
+import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.RunnerBuilder;
+
+/**
+ * {@link Suite} test runner for JUnit that runs all test classes in the
+ * Launchwrapper context. To use it, declare this class as test runner
+ * using {@link RunWith} and list the test classes with
+ * {@link SuiteClasses}.
+ *
+ * <p>Test classes without a {@link RunWith} annotation are run using the
+ * {@link LaunchWrapperTestRunner}. If {@code lwts.parallel} is set, the test
+ * classes of the suite are run concurrently.</p>
+ */
+public class LaunchWrapperSuite extends Suite {
+
+    /**
+     * Invoked by JUnit to initialize the {@link LaunchWrapperSuite} test
+     * runner.
+     *
+     * @param klass The suite class
+     * @param builder The builder for the runners of the test classes
+     * @throws InitializationError If an error occurs during initialization
+     */
+    public LaunchWrapperSuite(Class<?> klass, RunnerBuilder builder) throws InitializationError {
+        super(klass, new Builder(builder));
+
+        if (Boolean.getBoolean(PARALLEL_PROPERTY)) {
+            int threads = Integer.getInteger(PARALLEL_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+            setScheduler(new ParallelScheduler(threads, "LWTS test class #%d"));
+        }
+    }
+
+    private static final class Builder extends RunnerBuilder {
+
+        private final RunnerBuilder builder;
+
+        private Builder(RunnerBuilder builder) {
+            this.builder = builder;
+        }
+
+        @Override
+        public Runner runnerForClass(Class<?> testClass) throws Throwable {
+            if (testClass.isAnnotationPresent(RunWith.class)) {
+                return this.builder.runnerForClass(testClass);
+            }
+
+            return new LaunchWrapperTestRunner(testClass);
+        }
+
+    }
+
+}
@@ -24,21 +24,169 @@
  */
 package org.spongepowered.lwts.runner;
 
-import com.google.common.base.Strings;
 import net.minecraft.launchwrapper.Launch;
+import org.junit.experimental.ParallelComputer;
 import org.junit.runner.RunWith;
+import org.junit.runner.notification.RunNotifier;
 import org.junit.runners.BlockJUnit4ClassRunner;
 import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.Statement;
+import org.spongepowered.lwts.AbstractTestTweaker;
 
 /**
  * Standard JUnit test runner. To run a test class in the Launchwrapper
  * context, declare this class as test runner using {@link RunWith}.
+ *
+ * <p>The runner can be used to run test classes concurrently (e.g. using
+ * JUnit's {@link ParallelComputer}). The Launchwrapper context is only
+ * initialized once, all other runners wait until the initialization has
+ * finished.</p>
  */
 public class LaunchWrapperTestRunner extends BlockJUnit4ClassRunner {
 
     public static final String TWEAKER_PROPERTY = "lwts.tweaker";
 
-    private static boolean initialized;
+    /**
+     * System property with the directory used to cache transformed classes
+     * across test JVMs. The cache is disabled if the property is not set.
+     */
+    public static final String CACHE_PROPERTY = "lwts.cache";
+
+    /**
+     * System property with the maximum size of the transformed class cache
+     * file in megabytes. Defaults to 256.
+     */
+    public static final String CACHE_SIZE_PROPERTY = "lwts.cache.size";
+
+    /**
+     * System property with the directory used to store a snapshot of the
+     * initialized Launchwrapper context. The snapshot is only captured if
+     * the tweaker supports it (see
+     * {@link AbstractTestTweaker#isSnapshotSupported()}).
+     */
+    public static final String SNAPSHOT_PROPERTY = "lwts.snapshot";
+
+    /**
+     * System property with a comma separated list of class path directories
+     * that are searched for modified files to detect if the launch snapshot
+     * is outdated. Other directories on the class path are only checked by
+     * their own modification time. All directories are searched if the
+     * property is not set.
+     */
+    public static final String SNAPSHOT_ROOTS_PROPERTY = "lwts.snapshot.roots";
+
+    /**
+     * System property with the directory where reports about the time spent
+     * in each transformer and for each class are written to when the JVM
+     * exits. Profiling is disabled if the property is not set.
+     */
+    public static final String PROFILE_PROPERTY = "lwts.profile";
+
+    /**
+     * System property with the directory where a report about the time spent
+     * and the memory allocated in each phase of the Launchwrapper bootstrap
+     * is written to, in the JUnit XML report format. The phases are also
+     * logged. Startup profiling is disabled if the property is not set.
+     */
+    public static final String STARTUP_PROFILE_PROPERTY = "lwts.startup.profile";
+
+    /**
+     * System property with a comma separated list of globs for classes whose
+     * bytes are written after each transformer (e.g.
+     * {@code com.example.world.*}). {@code *} matches any part of a name
+     * within a package, {@code **} matches any part of a name. The dump is
+     * disabled if the property is not set.
+     */
+    public static final String DUMP_PROPERTY = "lwts.dump";
+
+    /**
+     * System property with the directory the transformer dump is written to.
+     * Defaults to {@code lwts-dump} in the working directory.
+     */
+    public static final String DUMP_DIR_PROPERTY = "lwts.dump.dir";
+
+    /**
+     * System property that enables reading the class bytes from an index of
+     * the class path built by the {@link AbstractTestTweaker}. Building the
+     * index slows down the initialization, so it only pays off if many
+     * classes are loaded from large class paths.
+     */
+    public static final String CLASSPATH_INDEX_PROPERTY = "lwts.index";
+
+    /**
+     * System property that enables transforming the classes targeted by the
+     * access transformers in parallel before the tests are run.
+     */
+    public static final String WARMUP_PROPERTY = "lwts.warmup";
+
+    /**
+     * System property with a comma separated list of packages whose classes
+     * are transformed in parallel before the tests are run.
+     */
+    public static final String WARMUP_PACKAGES_PROPERTY = "lwts.warmup.packages";
+
+    /**
+     * System property with the number of threads used to transform the
+     * classes ahead of time. Defaults to the number of available processors.
+     */
+    public static final String WARMUP_THREADS_PROPERTY = "lwts.warmup.threads";
+
+    /**
+     * System property that enables loading each test class in its own child
+     * class loader of the {@link Launch#classLoader}. The isolated classes
+     * are defined again for each test class, but are only transformed once.
+     */
+    public static final String ISOLATION_PROPERTY = "lwts.isolation";
+
+    /**
+     * System property with a comma separated list of packages whose classes
+     * are defined separately for each test class if isolation is enabled.
+     * Defaults to the package of the test class.
+     */
+    public static final String ISOLATION_PACKAGES_PROPERTY = "lwts.isolation.packages";
+
+    /**
+     * System property with the maximum number of transformed class bytes
+     * retained for the isolated classes if isolation is enabled. Classes
+     * evicted from the cache are transformed again when they are loaded by
+     * the next test class. Defaults to 64 MB.
+     */
+    public static final String ISOLATION_SIZE_PROPERTY = "lwts.isolation.size";
+
+    /**
+     * System property that enables releasing state that is no longer needed
+     * once the classes were loaded: The access transformer rules of classes
+     * that were already transformed and the class bytes cached by the
+     * {@link Launch#classLoader} and for the isolated classes, which are
+     * cleared after each test class was loaded. The number of released
+     * bytes is logged after the initialization and when the JVM shuts down.
+     */
+    public static final String MEMORY_SAVING_PROPERTY = "lwts.memory.saving";
+
+    /**
+     * System property with the maximum number of fixtures kept by the
+     * {@link FixtureCache}. Defaults to 16.
+     */
+    public static final String FIXTURE_CACHE_SIZE_PROPERTY = "lwts.fixtures.size";
+
+    /**
+     * System property that enables running the test classes of a
+     * {@link LaunchWrapperSuite} concurrently.
+     */
+    public static final String PARALLEL_PROPERTY = "lwts.parallel";
+
+    /**
+     * System property with the number of threads used to run test classes
+     * concurrently. Defaults to the number of available processors.
+     */
+    public static final String PARALLEL_THREADS_PROPERTY = "lwts.parallel.threads";
+
+    /**
+     * System property with the number of parameter sets that are run
+     * concurrently by the {@link LaunchWrapperParallelParameterized} runner.
+     * Defaults to the number of available processors.
+     */
+    public static final String PARAMETERIZED_THREADS_PROPERTY = "lwts.parameterized.threads";
 
     /**
      * Invoked by JUnit to initialize the {@link LaunchWrapperTestRunner}.
@@ -50,41 +198,33 @@ public LaunchWrapperTestRunner(Class<?> klass) throws InitializationError {
         super(loadTestClass(klass));
     }
 
+    @Override
+    protected Statement classBlock(RunNotifier notifier) {
+        return LaunchWrapperBootstrap.releaseAfter(super.classBlock(notifier), getTestClass().getJavaClass());
+    }
+
     /**
      * Loads a test class within the Launchwrapper context.
      *
      * <p>The context will be initialized the first time this method is
-     * invoked.</p>
+     * invoked. This method is thread-safe.</p>
+     *
+     * <p>If isolation is enabled (see {@link #ISOLATION_PROPERTY}), each
+     * invocation loads the class using a new class loader.</p>
      *
      * @param originalClass The original test class to load using Launchwrapper
      * @return The loaded class
      * @throws InitializationError If an errors occurs when loading the class
      */
     public static Class<?> loadTestClass(Class<?> originalClass) throws InitializationError {
-        if (!initialized) {
-            initialized = true;
-
-            String tweakClass = System.getProperty(TWEAKER_PROPERTY);
-            if (Strings.isNullOrEmpty(tweakClass)) {
-                throw new RuntimeException("Missing system property " + TWEAKER_PROPERTY);
-            }
-
-            // Normally, LaunchWrapper sets the thread's context class loader
-            // to the LaunchClassLoader. However, that causes issue as soon as
-            // tests are run in the normal class loader in the same thread.
-            // Simply resetting it seems to fix various issues with Mockito.
-            Thread thread = Thread.currentThread();
-            ClassLoader contextClassLoader = thread.getContextClassLoader();
-
-            Launch.main(new String[]{"--tweakClass", tweakClass});
-
-            thread.setContextClassLoader(contextClassLoader);
-        }
+        LaunchWrapperBootstrap.initialize();
 
         try {
-            return Class.forName(originalClass.getName(), true, Launch.classLoader);
+            return Class.forName(originalClass.getName(), true, LaunchWrapperBootstrap.createTestClassLoader(originalClass));
         } catch (ClassNotFoundException e) {
             throw new InitializationError(e);
+        } finally {
+            LaunchWrapperBootstrap.releaseClassBytes();
         }
     }
 
@@ -0,0 +1,301 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.runner;
+
+import com.google.common.collect.Lists;
+import org.junit.runner.Description;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runner.notification.StoppedByUserException;
+import org.junit.runners.model.RunnerScheduler;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * Runs the children of a JUnit runner concurrently, but reports their
+ * results in the order they were scheduled. The first child that has not
+ * finished yet reports its notifications directly, so the durations of its
+ * tests are measured correctly. The notifications of all children behind it
+ * are recorded and passed on once all previous children have finished.
+ *
+ * <p>Runners using this scheduler need to pass the notifier returned by
+ * {@link #getNotifier(RunNotifier)} to their children. Stop requests on the
+ * notifier of the parent runner are passed on to all children.</p>
+ */
+final class OrderedParallelScheduler implements RunnerScheduler {
+
+    private static final ThreadLocal<Child> currentChild = new ThreadLocal<Child>();
+
+    @Nullable private static final Field pleaseStopField = findPleaseStopField();
+
+    private final ParallelScheduler scheduler;
+
+    // Guarded by this
+    private final List<Child> children = Lists.newArrayList();
+    private int next;
+
+    OrderedParallelScheduler(int threads, String nameFormat) {
+        this.scheduler = new ParallelScheduler(threads, nameFormat);
+    }
+
+    /**
+     * Returns the notifier the child running in the current thread should
+     * report its results to.
+     *
+     * @param notifier The notifier of the parent runner
+     * @return The notifier for the child
+     */
+    static RunNotifier getNotifier(RunNotifier notifier) {
+        Child child = currentChild.get();
+        if (child == null) {
+            return notifier;
+        }
+
+        child.setTarget(notifier);
+        return child;
+    }
+
+    @Override
+    public void schedule(final Runnable childStatement) {
+        final Child child = new Child();
+        synchronized (this) {
+            this.children.add(child);
+            if (this.children.size() == this.next + 1) {
+                child.forward();
+            }
+        }
+
+        this.scheduler.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                currentChild.set(child);
+                try {
+                    childStatement.run();
+                } finally {
+                    currentChild.remove();
+                    complete(child);
+                }
+            }
+        });
+    }
+
+    private synchronized void complete(Child child) {
+        child.completed = true;
+
+        // Pass on the notifications of all children that are next in order
+        while (this.next < this.children.size()) {
+            Child next = this.children.get(this.next);
+            next.forward();
+            if (!next.completed) {
+                // Reports its remaining notifications directly
+                break;
+            }
+
+            this.children.set(this.next++, null);
+        }
+    }
+
+    @Override
+    public void finished() {
+        this.scheduler.finished();
+    }
+
+    private static boolean isStopRequested(RunNotifier notifier) {
+        if (pleaseStopField == null) {
+            return false;
+        }
+
+        try {
+            return pleaseStopField.getBoolean(notifier);
+        } catch (IllegalAccessException e) {
+            return false;
+        }
+    }
+
+    @Nullable
+    private static Field findPleaseStopField() {
+        // RunNotifier does not expose whether a stop was requested
+        try {
+            Field field = RunNotifier.class.getDeclaredField("pleaseStop");
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException e) {
+            return null;
+        } catch (SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Notifier of a single child. Records the notifications until the
+     * child is next in order and forwards them to the notifier of the
+     * parent runner afterwards.
+     */
+    private static final class Child extends RunNotifier {
+
+        private static final int STARTED = 0;
+        private static final int FINISHED = 1;
+        private static final int FAILURE = 2;
+        private static final int ASSUMPTION_FAILURE = 3;
+        private static final int IGNORED = 4;
+
+        // Guarded by this
+        @Nullable private RunNotifier target;
+        @Nullable private List<Event> events = Lists.newArrayList();
+        private boolean stopped;
+
+        // Guarded by the scheduler
+        private boolean completed;
+
+        private synchronized void setTarget(RunNotifier target) {
+            this.target = target;
+            if (this.events == null) {
+                // Already next in order
+                replay();
+            }
+        }
+
+        /**
+         * Passes on all recorded notifications and forwards all further
+         * notifications directly.
+         */
+        private synchronized void forward() {
+            if (this.target == null) {
+                this.events = null;
+                return;
+            }
+
+            replay();
+        }
+
+        private void replay() {
+            List<Event> events = this.events;
+            this.events = null;
+            if (events != null) {
+                for (Event event : events) {
+                    try {
+                        dispatch(event.type, event.value);
+                    } catch (StoppedByUserException e) {
+                        // The test already ran before the stop was requested
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void fireTestStarted(Description description) throws StoppedByUserException {
+            checkStopped();
+            notify(STARTED, description);
+        }
+
+        @Override
+        public void fireTestFinished(Description description) {
+            notify(FINISHED, description);
+        }
+
+        @Override
+        public void fireTestFailure(Failure failure) {
+            notify(FAILURE, failure);
+        }
+
+        @Override
+        public void fireTestAssumptionFailed(Failure failure) {
+            notify(ASSUMPTION_FAILURE, failure);
+        }
+
+        @Override
+        public void fireTestIgnored(Description description) {
+            notify(IGNORED, description);
+        }
+
+        @Override
+        public void pleaseStop() {
+            RunNotifier target;
+            synchronized (this) {
+                this.stopped = true;
+                target = this.target;
+            }
+
+            if (target != null) {
+                target.pleaseStop();
+            }
+        }
+
+        private synchronized void checkStopped() {
+            if (this.stopped || (this.target != null && isStopRequested(this.target))) {
+                throw new StoppedByUserException();
+            }
+        }
+
+        private synchronized void notify(int type, Object value) {
+            if (this.events != null) {
+                this.events.add(new Event(type, value));
+            } else {
+                dispatch(type, value);
+            }
+        }
+
+        private void dispatch(int type, Object value) {
+            RunNotifier target = this.target;
+            switch (type) {
+                case STARTED:
+                    target.fireTestStarted((Description) value);
+                    break;
+                case FINISHED:
+                    target.fireTestFinished((Description) value);
+                    break;
+                case FAILURE:
+                    target.fireTestFailure((Failure) value);
+                    break;
+                case ASSUMPTION_FAILURE:
+                    target.fireTestAssumptionFailed((Failure) value);
+                    break;
+                case IGNORED:
+                    target.fireTestIgnored((Description) value);
+                    break;
+                default:
+                    throw new AssertionError(type);
+            }
+        }
+
+    }
+
+    private static final class Event {
+
+        private final int type;
+        private final Object value;
+
+        private Event(int type, Object value) {
+            this.type = type;
+            this.value = value;
+        }
+
+    }
+
+}
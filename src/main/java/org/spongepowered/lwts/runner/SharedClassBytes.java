@@ -0,0 +1,192 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.runner;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import net.minecraft.launchwrapper.IClassNameTransformer;
+import net.minecraft.launchwrapper.IClassTransformer;
+import net.minecraft.launchwrapper.LaunchClassLoader;
+import org.spongepowered.lwts.loader.ClassLoaderExclusions;
+
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.security.CodeSource;
+import java.security.cert.Certificate;
+
+import javax.annotation.Nullable;
+
+/**
+ * Transformed class bytes shared by all {@link IsolatedClassLoader}s. Each
+ * class is only transformed once, no matter how many test classes load it,
+ * as long as its bytes were not evicted. The size of the retained bytes is
+ * limited, the least recently used classes are evicted first.
+ */
+final class SharedClassBytes {
+
+    private final LaunchClassLoader loader;
+    private final ClassLoaderExclusions exclusions;
+    @Nullable private final IClassNameTransformer renameTransformer;
+
+    private final Cache<String, Entry> classes;
+
+    /**
+     * Creates the shared class bytes for the specified class loader.
+     *
+     * @param loader The class loader providing and transforming the classes
+     * @param maxSize The maximum number of class bytes to retain
+     */
+    SharedClassBytes(LaunchClassLoader loader, long maxSize) {
+        this.loader = loader;
+        this.exclusions = ClassLoaderExclusions.of(loader);
+        this.classes = CacheBuilder.newBuilder()
+                .maximumWeight(maxSize)
+                .weigher(new Weigher<String, Entry>() {
+
+                    @Override
+                    public int weigh(String name, Entry entry) {
+                        return entry.bytes.length;
+                    }
+                })
+                .build();
+
+        IClassNameTransformer renameTransformer = null;
+        for (IClassTransformer transformer : loader.getTransformers()) {
+            if (transformer instanceof IClassNameTransformer) {
+                renameTransformer = (IClassNameTransformer) transformer;
+                break;
+            }
+        }
+        this.renameTransformer = renameTransformer;
+    }
+
+    /**
+     * Returns whether the class is loaded by the parent class loader of the
+     * {@link LaunchClassLoader}. These classes cannot be isolated.
+     *
+     * @param name The class name
+     * @return {@code true} if the class is excluded
+     */
+    boolean isExcluded(String name) {
+        return this.exclusions.isClassLoaderExcluded(name);
+    }
+
+    /**
+     * Returns the transformed bytes of the specified class, transforming them
+     * if they were not requested before.
+     *
+     * @param name The transformed class name
+     * @return The transformed class, or {@code null} if the class does not
+     *     exist
+     * @throws IOException If an error occurs while reading the class
+     */
+    @Nullable
+    Entry get(String name) throws IOException {
+        Entry entry = this.classes.getIfPresent(name);
+        if (entry == null) {
+            entry = transform(name);
+            if (entry == null) {
+                return null;
+            }
+
+            Entry existing = this.classes.asMap().putIfAbsent(name, entry);
+            if (existing != null) {
+                entry = existing;
+            }
+        }
+
+        return entry;
+    }
+
+    /**
+     * Returns the number of class bytes currently retained.
+     *
+     * @return The number of retained bytes
+     */
+    long getRetainedBytes() {
+        long bytes = 0;
+        for (Entry entry : this.classes.asMap().values()) {
+            bytes += entry.bytes.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Releases all retained class bytes. The classes are transformed again
+     * the next time they are requested.
+     *
+     * @return The number of released bytes
+     */
+    long clear() {
+        long bytes = getRetainedBytes();
+        this.classes.invalidateAll();
+        return bytes;
+    }
+
+    @Nullable
+    private Entry transform(String transformedName) throws IOException {
+        String name = this.renameTransformer != null ? this.renameTransformer.unmapClassName(transformedName) : transformedName;
+        byte[] bytes = this.loader.getClassBytes(name);
+        if (bytes == null) {
+            return null;
+        }
+
+        if (!this.exclusions.isTransformerExcluded(transformedName)) {
+            for (IClassTransformer transformer : this.loader.getTransformers()) {
+                bytes = transformer.transform(name, transformedName, bytes);
+            }
+        }
+
+        return new Entry(bytes, getCodeSource(name));
+    }
+
+    @Nullable
+    private CodeSource getCodeSource(String name) throws IOException {
+        URL url = this.loader.findResource(name.replace('.', '/') + ".class");
+        if (url == null) {
+            return null;
+        }
+
+        if (url.getProtocol().equals("jar")) {
+            url = ((JarURLConnection) url.openConnection()).getJarFileURL();
+        }
+        return new CodeSource(url, (Certificate[]) null);
+    }
+
+    static final class Entry {
+
+        final byte[] bytes;
+        @Nullable final CodeSource codeSource;
+
+        private Entry(byte[] bytes, @Nullable CodeSource codeSource) {
+            this.bytes = bytes;
+            this.codeSource = codeSource;
+        }
+
+    }
+
+}
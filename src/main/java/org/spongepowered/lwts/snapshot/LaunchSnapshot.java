@@ -0,0 +1,310 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.snapshot;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import net.minecraft.launchwrapper.IClassTransformer;
+import net.minecraft.launchwrapper.Launch;
+import net.minecraft.launchwrapper.LaunchClassLoader;
+import net.minecraft.launchwrapper.LogWrapper;
+import org.spongepowered.lwts.loader.ClassLoaderExclusions;
+import org.spongepowered.lwts.transformer.AccessTransformer;
+import org.spongepowered.lwts.transformer.TransformerTargets;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/**
+ * Snapshot of an initialized Launchwrapper context that can be restored by
+ * later test JVMs instead of running the tweaker again.
+ *
+ * <p>The snapshot contains the class loader exclusions, the names of the
+ * registered transformers, the launch target and the modifiers of all
+ * registered {@link AccessTransformer}s. It is bound to a fingerprint of the
+ * class path and becomes invalid as soon as any class path entry changes.</p>
+ */
+public final class LaunchSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 3L;
+
+    private static final String FILE_NAME = "context.snapshot";
+
+    private final String fingerprint;
+
+    private final ImmutableList<String> classLoaderExclusions;
+    private final ImmutableList<String> transformerExclusions;
+    private final ImmutableList<String> transformers;
+    private final ImmutableMap<Integer, Serializable> accessTransformers;
+    private final ImmutableMap<String, TransformerTargets> transformerTargets;
+
+    private final String launchTarget;
+    private final String[] launchArguments;
+
+    private LaunchSnapshot(HashCode fingerprint, ImmutableList<String> classLoaderExclusions, ImmutableList<String> transformerExclusions,
+            ImmutableList<String> transformers, ImmutableMap<Integer, Serializable> accessTransformers,
+            ImmutableMap<String, TransformerTargets> transformerTargets, String launchTarget, String[] launchArguments) {
+        this.fingerprint = fingerprint.toString();
+        this.classLoaderExclusions = classLoaderExclusions;
+        this.transformerExclusions = transformerExclusions;
+        this.transformers = transformers;
+        this.accessTransformers = accessTransformers;
+        this.transformerTargets = transformerTargets;
+        this.launchTarget = launchTarget;
+        this.launchArguments = launchArguments;
+    }
+
+    String getLaunchTarget() {
+        return this.launchTarget;
+    }
+
+    String[] getLaunchArguments() {
+        return this.launchArguments.clone();
+    }
+
+    /**
+     * Returns the targets of the transformers declared by the tweaker.
+     *
+     * @return The transformer targets, by the class name of the transformer
+     */
+    public ImmutableMap<String, TransformerTargets> getTransformerTargets() {
+        return this.transformerTargets;
+    }
+
+    /**
+     * Restores the snapshot on the specified class loader.
+     *
+     * @param loader The class loader
+     */
+    void restore(LaunchClassLoader loader) {
+        ClassLoaderExclusions exclusions = ClassLoaderExclusions.of(loader);
+        for (String exclusion : this.classLoaderExclusions) {
+            exclusions.addClassLoaderExclusion(exclusion);
+        }
+        for (String exclusion : this.transformerExclusions) {
+            exclusions.addTransformerExclusion(exclusion);
+        }
+
+        for (String transformer : this.transformers) {
+            loader.registerTransformer(transformer);
+        }
+
+        List<IClassTransformer> transformers = loader.getTransformers();
+        for (Map.Entry<Integer, Serializable> entry : this.accessTransformers.entrySet()) {
+            ((AccessTransformer) transformers.get(entry.getKey())).restore(entry.getValue());
+        }
+    }
+
+    /**
+     * Writes this snapshot to the specified directory.
+     *
+     * @param dir The snapshot directory
+     * @throws IOException If an error occurs while writing the snapshot
+     */
+    public void write(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Failed to create snapshot directory " + dir);
+        }
+
+        // Write to a temporary file first so other JVMs never see an incomplete snapshot
+        File tempFile = File.createTempFile(FILE_NAME, null, dir);
+        ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+            out.writeObject(this);
+        } finally {
+            out.close();
+        }
+
+        File file = new File(dir, FILE_NAME);
+        if (!tempFile.renameTo(file) && !(file.delete() && tempFile.renameTo(file))) {
+            tempFile.delete();
+            throw new IOException("Failed to write snapshot " + file);
+        }
+    }
+
+    /**
+     * Reads the snapshot from the specified directory.
+     *
+     * @param dir The snapshot directory
+     * @param fingerprint The fingerprint of the current class path
+     * @return The snapshot, or {@code null} if there is no snapshot for
+     *     the specified fingerprint
+     */
+    @Nullable
+    public static LaunchSnapshot read(File dir, HashCode fingerprint) {
+        File file = new File(dir, FILE_NAME);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try {
+            ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                LaunchSnapshot snapshot = (LaunchSnapshot) in.readObject();
+                return snapshot.fingerprint.equals(fingerprint.toString()) ? snapshot : null;
+            } finally {
+                in.close();
+            }
+        } catch (Exception e) {
+            LogWrapper.warning("Failed to read snapshot %s: %s", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Captures the current state of the specified class loader.
+     *
+     * @param fingerprint The fingerprint of the current class path
+     * @param loader The class loader
+     * @param transformers The registered transformers
+     * @param transformerTargets The targets of the transformers declared by
+     *     the tweaker
+     * @param launchTarget The launch target of the tweaker
+     * @param launchArguments The launch arguments of the tweaker
+     * @return The captured snapshot
+     */
+    public static LaunchSnapshot capture(HashCode fingerprint, LaunchClassLoader loader, List<IClassTransformer> transformers,
+            Map<String, TransformerTargets> transformerTargets, String launchTarget, String[] launchArguments) {
+        ImmutableList.Builder<String> transformerNames = ImmutableList.builder();
+        ImmutableMap.Builder<Integer, Serializable> accessTransformers = ImmutableMap.builder();
+        for (int i = 0; i < transformers.size(); i++) {
+            IClassTransformer transformer = transformers.get(i);
+            transformerNames.add(transformer.getClass().getName());
+            if (transformer instanceof AccessTransformer) {
+                accessTransformers.put(i, ((AccessTransformer) transformer).snapshot());
+            }
+        }
+
+        return new LaunchSnapshot(fingerprint, ClassLoaderExclusions.getClassLoaderExclusions(loader),
+                ClassLoaderExclusions.getTransformerExclusions(loader),
+                transformerNames.build(), accessTransformers.build(), ImmutableMap.copyOf(transformerTargets), launchTarget,
+                launchArguments.clone());
+    }
+
+    /**
+     * Computes a fingerprint of the specified tweaker and class path. The
+     * fingerprint changes if any file on the class path is modified.
+     *
+     * @param tweakClass The name of the tweaker class
+     * @param classPath The class path entries
+     * @return The fingerprint
+     */
+    public static HashCode fingerprint(String tweakClass, Iterable<File> classPath) {
+        return fingerprint(tweakClass, classPath, null);
+    }
+
+    /**
+     * Computes a fingerprint of the specified tweaker and class path. Only the
+     * class path directories in {@code roots} are walked recursively, other
+     * directories are only checked by their own modification time. Files are
+     * compared by their size and modification time.
+     *
+     * @param tweakClass The name of the tweaker class
+     * @param classPath The class path entries
+     * @param roots The directories to walk recursively, or {@code null} to
+     *     walk all directories on the class path
+     * @return The fingerprint
+     */
+    public static HashCode fingerprint(String tweakClass, Iterable<File> classPath, @Nullable Set<File> roots) {
+        Hasher hasher = Hashing.sha1().newHasher();
+        hasher.putLong(serialVersionUID);
+        hasher.putString(tweakClass, Charsets.UTF_8);
+        for (File file : classPath) {
+            putFile(hasher, file, roots == null || roots.contains(file.getAbsoluteFile()));
+        }
+        return hasher.hash();
+    }
+
+    /**
+     * Returns the class path that is used by Launchwrapper.
+     *
+     * @return The class path entries
+     */
+    public static List<File> getClassPath() {
+        List<File> result = Lists.newArrayList();
+
+        ClassLoader loader = Launch.class.getClassLoader();
+        if (loader instanceof URLClassLoader) {
+            for (URL url : ((URLClassLoader) loader).getURLs()) {
+                try {
+                    result.add(new File(url.toURI()));
+                } catch (URISyntaxException e) {
+                    result.add(new File(url.getPath()));
+                } catch (IllegalArgumentException e) {
+                    // Not a file URL
+                }
+            }
+        } else {
+            for (String path : Splitter.on(File.pathSeparatorChar).omitEmptyStrings().split(System.getProperty("java.class.path"))) {
+                result.add(new File(path));
+            }
+        }
+
+        return result;
+    }
+
+    private static void putFile(Hasher hasher, File file, boolean walk) {
+        hasher.putString(file.getPath(), Charsets.UTF_8);
+        if (file.isDirectory()) {
+            hasher.putLong(file.lastModified());
+            if (walk) {
+                File[] files = file.listFiles();
+                if (files != null) {
+                    // The order of the files depends on the file system
+                    Arrays.sort(files);
+                    for (File child : files) {
+                        putFile(hasher, child, true);
+                    }
+                }
+            }
+        } else {
+            hasher.putLong(file.length());
+            hasher.putLong(file.lastModified());
+        }
+    }
+
+}
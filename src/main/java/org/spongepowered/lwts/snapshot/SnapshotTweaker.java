@@ -0,0 +1,91 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.snapshot;
+
+import static com.google.common.base.Preconditions.checkState;
+import static org.spongepowered.lwts.runner.LaunchWrapperTestRunner.CLASSPATH_INDEX_PROPERTY;
+
+import net.minecraft.launchwrapper.ITweaker;
+import net.minecraft.launchwrapper.LaunchClassLoader;
+import org.spongepowered.lwts.loader.ClassPathIndex;
+import org.spongepowered.lwts.profile.StartupProfiler;
+
+import java.io.File;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * Tweaker that restores a {@link LaunchSnapshot} instead of running the
+ * original tweaker.
+ */
+public final class SnapshotTweaker implements ITweaker {
+
+    @Nullable private static volatile LaunchSnapshot snapshot;
+
+    /**
+     * Sets the snapshot that is restored by the next instance of this
+     * tweaker.
+     *
+     * @param snapshot The snapshot to restore
+     */
+    public static void setSnapshot(LaunchSnapshot snapshot) {
+        SnapshotTweaker.snapshot = snapshot;
+    }
+
+    private final LaunchSnapshot current;
+
+    public SnapshotTweaker() {
+        LaunchSnapshot snapshot = SnapshotTweaker.snapshot;
+        checkState(snapshot != null, "No snapshot to restore");
+        this.current = snapshot;
+    }
+
+    @Override
+    public void acceptOptions(List<String> args, File gameDir, File assetsDir, String profile) {
+
+    }
+
+    @Override
+    public void injectIntoClassLoader(LaunchClassLoader loader) {
+        StartupProfiler.startPhase("snapshot.restore");
+        this.current.restore(loader);
+
+        if (Boolean.getBoolean(CLASSPATH_INDEX_PROPERTY)) {
+            ClassPathIndex.tryInstall(loader);
+        }
+    }
+
+    @Override
+    public String getLaunchTarget() {
+        return this.current.getLaunchTarget();
+    }
+
+    @Override
+    public String[] getLaunchArguments() {
+        return this.current.getLaunchArguments();
+    }
+
+}
@@ -27,197 +27,740 @@
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.io.Resources.getResource;
-import static com.google.common.io.Resources.readLines;
 import static org.objectweb.asm.Opcodes.ACC_FINAL;
 import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
 import static org.objectweb.asm.Opcodes.ACC_PROTECTED;
 import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ASM5;
 import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
 import static org.objectweb.asm.Opcodes.INVOKEVIRTUAL;
 
 import com.google.common.base.Charsets;
 import com.google.common.base.Splitter;
-import com.google.common.collect.ImmutableListMultimap;
-import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
-import com.google.common.io.LineProcessor;
-import net.minecraft.launchwrapper.IClassTransformer;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.Sets;
+import com.google.common.io.Resources;
 import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
-import org.objectweb.asm.tree.AbstractInsnNode;
-import org.objectweb.asm.tree.ClassNode;
-import org.objectweb.asm.tree.FieldNode;
-import org.objectweb.asm.tree.MethodInsnNode;
-import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.spongepowered.lwts.transformer.profile.InstrumentedTransformer;
 
 import java.io.IOException;
-import java.util.Iterator;
+import java.io.Serializable;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class AccessTransformer implements IClassTransformer {
+import javax.annotation.Nullable;
+
+public class AccessTransformer implements TargetedTransformer, InstrumentedTransformer {
 
     private static final Splitter SEPARATOR = Splitter.on(' ').trimResults();
 
-    private Processor processor = new Processor();
-    private ImmutableMultimap<String, Modifier> modifiers;
+    /**
+     * The file extension of access transformers compiled using
+     * {@link AccessTransformerCompiler}.
+     */
+    public static final String COMPILED_EXTENSION = ".atc";
+
+    @Nullable private List<ModifierSource> sources = Lists.newArrayList(); // Guarded by this
+    @Nullable private volatile Rules rules;
+
+    // Counters for the INVOKESPECIAL fix-up of private methods that were made accessible
+    private final AtomicLong fixupClasses = new AtomicLong();
+    private final AtomicLong fixupRejected = new AtomicLong();
+    private final AtomicLong fixupMethodsDecoded = new AtomicLong();
+    private final AtomicLong fixupMethodsSkipped = new AtomicLong();
+
+    private final AtomicLong releasedRules = new AtomicLong();
 
     public void register(String file) throws IOException {
-        checkState(this.processor != null, "Cannot add access transformer after first class was transformed");
-        readLines(getResource(file), Charsets.UTF_8, this.processor);
+        register(getResource(file));
+    }
+
+    public synchronized void register(URL url) throws IOException {
+        checkState(this.sources != null, "Cannot add access transformer after it was frozen");
+        if (url.getPath().endsWith(COMPILED_EXTENSION)) {
+            this.sources.add(CompiledAccessTransformer.open(url));
+        } else {
+            this.sources.add(TextSource.parse(url));
+        }
+    }
+
+    /**
+     * Builds the modifiers from all registered access transformers. No
+     * further access transformers can be registered after this method was
+     * called.
+     *
+     * <p>This is called automatically when the first class is transformed.
+     * Calling it explicitly once all access transformers were registered
+     * ensures all classes can be transformed concurrently without any
+     * locking.</p>
+     */
+    public void freeze() {
+        getRules();
+    }
+
+    private Rules getRules() {
+        Rules rules = this.rules;
+        if (rules == null) {
+            synchronized (this) {
+                rules = this.rules;
+                if (rules == null) {
+                    this.rules = rules = new Rules(ImmutableList.copyOf(this.sources));
+                    this.sources = null;
+                }
+            }
+        }
+        return rules;
     }
 
-    private static String substringBefore(String s, char c) {
-        int pos = s.indexOf(c);
-        return pos >= 0 ? s.substring(0, pos) : s;
+    /**
+     * Releases the modifiers of all classes that were already transformed
+     * and releases the modifiers of all other classes as soon as they are
+     * transformed. This reduces the memory used by large access transformer
+     * configurations once the classes were loaded.
+     *
+     * <p>Modifiers from access transformer configurations are rebuilt if a
+     * class is transformed again, e.g. by a new class loader. Modifiers
+     * restored from a snapshot cannot be rebuilt, so transforming their
+     * class again or creating a new {@link #snapshot()} fails.</p>
+     *
+     * @return The number of classes whose modifiers were released
+     */
+    public int releaseTransformedRules() {
+        int released = getRules().releaseApplied();
+        this.releasedRules.addAndGet(released);
+        return released;
+    }
+
+    /**
+     * Returns a serializable snapshot of the modifiers built from all
+     * registered access transformers. The snapshot can be restored using
+     * {@link #restore(Serializable)}.
+     *
+     * @return The snapshot
+     */
+    public Serializable snapshot() {
+        return getRules().resolveAll();
+    }
+
+    /**
+     * Restores the modifiers from a snapshot created using
+     * {@link #snapshot()}. No further access transformers can be registered
+     * after this method was called.
+     *
+     * @param snapshot The snapshot to restore
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void restore(Serializable snapshot) {
+        checkState(this.sources != null, "Cannot restore access transformer after it was frozen");
+        checkArgument(snapshot instanceof ImmutableMap, "Invalid access transformer snapshot");
+        this.rules = new Rules((ImmutableMap<String, ClassModifiers>) snapshot);
+        this.sources = null;
+    }
+
+    /**
+     * Returns the names of all classes that are modified by this access
+     * transformer. No further access transformers can be registered after
+     * this method was called.
+     *
+     * @return The modified classes
+     */
+    @Override
+    public TransformerTargets getTargets() {
+        return TransformerTargets.classes(getRules().targets);
     }
 
     @Override
     public byte[] transform(String name, String transformedName, byte[] bytes) {
-        if (this.modifiers == null) {
-            this.modifiers = this.processor.build();
-            this.processor = null;
+        Rules rules = getRules();
+        if (bytes == null) {
+            return bytes;
         }
 
-        if (bytes == null || !this.modifiers.containsKey(transformedName)) {
+        ClassModifiers modifiers = rules.get(transformedName);
+        if (modifiers == null) {
             return bytes;
         }
 
-        ClassNode classNode = new ClassNode();
         ClassReader reader = new ClassReader(bytes);
-        reader.accept(classNode, 0);
-
-        for (Modifier m : this.modifiers.get(transformedName)) {
-            if (m.isClass) { // Class
-                classNode.access = m.transform(classNode.access);
-            } else if (m.desc == null) { // Field
-                for (FieldNode fieldNode : classNode.fields) {
-                    if (m.wildcard || fieldNode.name.equals(m.name)) {
-                        fieldNode.access = m.transform(fieldNode.access);
-                        if (!m.wildcard) {
-                            break;
-                        }
+        ClassWriter writer = new ClassWriter(reader, 0);
+        AccessVisitor visitor = new AccessVisitor(writer, modifiers);
+        reader.accept(visitor, 0);
+        bytes = writer.toByteArray();
+
+        if (rules.applied(transformedName, modifiers)) {
+            this.releasedRules.incrementAndGet();
+        }
+
+        if (visitor.overridable != null) {
+            // Only needed if a private method was made accessible, which requires another pass
+            // over the method instructions to replace the INVOKESPECIAL calls to that method
+            this.fixupClasses.incrementAndGet();
+
+            reader = new ClassReader(bytes);
+            Set<String> callers = InvokeSpecialScanner.findCallers(reader, visitor.overridable);
+            if (callers.isEmpty()) {
+                this.fixupRejected.incrementAndGet();
+            } else {
+                writer = new ClassWriter(reader, 0);
+                InvokeVisitor invokeVisitor = new InvokeVisitor(writer, visitor.overridable, callers);
+                reader.accept(invokeVisitor, 0);
+                bytes = writer.toByteArray();
+
+                this.fixupMethodsDecoded.addAndGet(invokeVisitor.decoded);
+                this.fixupMethodsSkipped.addAndGet(invokeVisitor.skipped);
+            }
+        }
+
+        return bytes;
+    }
+
+    @Override
+    public ImmutableMap<String, Long> getCounters() {
+        return ImmutableMap.of(
+                "invokespecial.classes", this.fixupClasses.get(),
+                "invokespecial.rejected", this.fixupRejected.get(),
+                "invokespecial.methods_decoded", this.fixupMethodsDecoded.get(),
+                "invokespecial.methods_skipped", this.fixupMethodsSkipped.get(),
+                "rules.released", this.releasedRules.get());
+    }
+
+    /**
+     * Applies the access modifiers to the class and its members while it is
+     * read. Methods that are not modified are copied as-is by the
+     * {@link ClassWriter}.
+     */
+    private static class AccessVisitor extends ClassVisitor {
+
+        private final ClassModifiers modifiers;
+        @Nullable private Set<String> overridable;
+
+        private AccessVisitor(ClassVisitor cv, ClassModifiers modifiers) {
+            super(ASM5, cv);
+            this.modifiers = modifiers;
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            access = transform(this.modifiers.classAccess, access);
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+            AccessMapping mapping = this.modifiers.fields.get(name);
+            access = transform(mapping != null ? mapping : this.modifiers.fieldWildcard, access);
+            return super.visitField(access, name, desc, signature, value);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+            boolean wasPrivate = (access & ACC_PRIVATE) != 0;
+
+            String key = name + desc;
+            AccessMapping mapping = this.modifiers.methods.get(key);
+            access = transform(mapping != null ? mapping : this.modifiers.methodWildcard, access);
+
+            // Constructors always use INVOKESPECIAL
+            // if we changed from private to something else we need to replace all INVOKESPECIAL calls to this method with INVOKEVIRTUAL
+            // so that overridden methods will be called. Only need to scan this class, because obviously the method was private.
+            if (wasPrivate && (access & ACC_PRIVATE) == 0 && !name.equals("<init>")) {
+                if (this.overridable == null) {
+                    this.overridable = Sets.newHashSet();
+                }
+
+                this.overridable.add(key);
+            }
+
+            return super.visitMethod(access, name, desc, signature, exceptions);
+        }
+
+        private static int transform(@Nullable AccessMapping mapping, int access) {
+            return mapping != null ? mapping.transform(access) : access;
+        }
+
+    }
+
+    /**
+     * Replaces INVOKESPECIAL calls to methods that are no longer private with
+     * INVOKEVIRTUAL. Only the instructions of the methods found by the
+     * {@link InvokeSpecialScanner} are visited, all other methods are copied
+     * as-is by the {@link ClassWriter}.
+     */
+    private static class InvokeVisitor extends ClassVisitor {
+
+        private final Set<String> overridable;
+        private final Set<String> callers;
+
+        private int decoded;
+        private int skipped;
+
+        private InvokeVisitor(ClassVisitor cv, Set<String> overridable, Set<String> callers) {
+            super(ASM5, cv);
+            this.overridable = overridable;
+            this.callers = callers;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+            MethodVisitor mv = super.visitMethod(access, name, desc, signature, exceptions);
+            if (!this.callers.contains(name + desc)) {
+                this.skipped++;
+                return mv;
+            }
+
+            this.decoded++;
+            return new MethodVisitor(ASM5, mv) {
+
+                @Override
+                public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
+                    if (opcode == INVOKESPECIAL && InvokeVisitor.this.overridable.contains(name + desc)) {
+                        opcode = INVOKEVIRTUAL;
                     }
+
+                    super.visitMethodInsn(opcode, owner, name, desc, itf);
                 }
-            } else {
-                List<MethodNode> overridable = null;
-
-                for (MethodNode methodNode : classNode.methods) {
-                    if (m.wildcard || (methodNode.name.equals(m.name) && methodNode.desc.equals(m.desc))) {
-                        boolean wasPrivate = (methodNode.access & ACC_PRIVATE) != 0;
-                        methodNode.access = m.transform(methodNode.access);
-
-                        // Constructors always use INVOKESPECIAL
-                        // if we changed from private to something else we need to replace all INVOKESPECIAL calls to this method with INVOKEVIRTUAL
-                        // so that overridden methods will be called. Only need to scan this class, because obviously the method was private.
-                        if (!methodNode.name.equals("<init>") && wasPrivate && (methodNode.access & ACC_PRIVATE) == 0) {
-                            if (overridable == null) {
-                                overridable = Lists.newArrayListWithExpectedSize(3);
-                            }
-
-                            overridable.add(methodNode);
-                        }
-
-                        if (!m.wildcard) {
-                            break;
-                        }
+
+            };
+        }
+
+    }
+
+    /**
+     * A source of modifiers, e.g. a single access transformer configuration.
+     */
+    interface ModifierSource {
+
+        /**
+         * Returns the names of all classes with modifiers in this source.
+         *
+         * @return The class names
+         */
+        Set<String> getClassNames();
+
+        /**
+         * Adds all modifiers for the specified class to the list.
+         *
+         * @param className The class name
+         * @param modifiers The list to add the modifiers to
+         */
+        void getModifiers(String className, List<Modifier> modifiers);
+
+    }
+
+    /**
+     * Modifiers from a text configuration. Only the class name of each line
+     * is parsed when the configuration is loaded, the modifiers are parsed
+     * once they are requested.
+     */
+    static final class TextSource implements ModifierSource {
+
+        private final String content;
+        private final ImmutableMap<String, int[]> lines;
+
+        private TextSource(String content, ImmutableMap<String, int[]> lines) {
+            this.content = content;
+            this.lines = lines;
+        }
+
+        @Override
+        public Set<String> getClassNames() {
+            return this.lines.keySet();
+        }
+
+        @Override
+        public void getModifiers(String className, List<Modifier> modifiers) {
+            int[] lines = this.lines.get(className);
+            if (lines != null) {
+                for (int i = 0; i < lines.length; i += 2) {
+                    modifiers.add(parseModifier(this.content.substring(lines[i], lines[i + 1])));
+                }
+            }
+        }
+
+        static TextSource parse(URL url) throws IOException {
+            String content = Resources.toString(url, Charsets.UTF_8);
+            Map<String, LineSpans> lines = Maps.newLinkedHashMap();
+
+            int length = content.length();
+            int start = 0;
+            while (start < length) {
+                // Find the end of the line, excluding comments
+                int end = start;
+                int lineEnd = -1;
+                for (; end < length; end++) {
+                    char c = content.charAt(end);
+                    if (c == '\n') {
+                        break;
+                    } else if (c == '#' && lineEnd < 0) {
+                        lineEnd = end;
                     }
                 }
+                if (lineEnd < 0) {
+                    lineEnd = end;
+                }
+
+                // Trim the line
+                int lineStart = start;
+                while (lineStart < lineEnd && Character.isWhitespace(content.charAt(lineStart))) {
+                    lineStart++;
+                }
+                while (lineEnd > lineStart && Character.isWhitespace(content.charAt(lineEnd - 1))) {
+                    lineEnd--;
+                }
 
-                if (overridable != null) {
-                    for (MethodNode methodNode : classNode.methods) {
-                        for (Iterator<AbstractInsnNode> itr = methodNode.instructions.iterator(); itr.hasNext(); ) {
-                            AbstractInsnNode insn = itr.next();
-                            if (insn.getOpcode() == INVOKESPECIAL) {
-                                MethodInsnNode mInsn = (MethodInsnNode) insn;
-                                for (MethodNode replace : overridable) {
-                                    if (replace.name.equals(mInsn.name) && replace.desc.equals(mInsn.desc)) {
-                                        mInsn.setOpcode(INVOKEVIRTUAL);
-                                        break;
-                                    }
-                                }
-                            }
-                        }
+                if (lineStart < lineEnd) {
+                    String className = parseClassName(content, lineStart, lineEnd);
+                    LineSpans spans = lines.get(className);
+                    if (spans == null) {
+                        spans = new LineSpans();
+                        lines.put(className, spans);
                     }
+                    spans.add(lineStart, lineEnd);
                 }
+
+                start = end + 1;
+            }
+
+            ImmutableMap.Builder<String, int[]> result = ImmutableMap.builder();
+            for (Map.Entry<String, LineSpans> entry : lines.entrySet()) {
+                result.put(entry.getKey(), entry.getValue().toArray());
+            }
+            return new TextSource(content, result.build());
+        }
+
+        private static String parseClassName(String content, int start, int end) {
+            int classStart = content.indexOf(' ', start) + 1;
+            checkArgument(classStart > 0 && classStart < end, "Invalid access transformer config line: " + content.substring(start, end));
+
+            int classEnd = content.indexOf(' ', classStart);
+            if (classEnd < 0 || classEnd > end) {
+                classEnd = end;
+            } else {
+                int next = content.indexOf(' ', classEnd + 1);
+                checkArgument(next < 0 || next >= end, "Invalid access transformer config line: " + content.substring(start, end));
             }
+
+            return content.substring(classStart, classEnd).trim().replace('/', '.');
         }
 
-        ClassWriter writer = new ClassWriter(0);
-        classNode.accept(writer);
-        return writer.toByteArray();
     }
 
-    private static class Processor implements LineProcessor<Void> {
+    /**
+     * Growable list of the start and end offsets of lines.
+     */
+    private static final class LineSpans {
 
-        private final ImmutableMultimap.Builder<String, Modifier> builder = ImmutableListMultimap.builder();
+        private int[] spans = new int[4];
+        private int size;
 
-        @Override
-        public boolean processLine(String line) throws IOException {
-            line = substringBefore(line, '#').trim();
-            if (line.isEmpty()) {
-                return true;
+        private void add(int start, int end) {
+            if (this.size + 2 > this.spans.length) {
+                this.spans = Arrays.copyOf(this.spans, this.spans.length * 2);
+            }
+            this.spans[this.size++] = start;
+            this.spans[this.size++] = end;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(this.spans, this.size);
+        }
+
+    }
+
+    /**
+     * The modifiers of all registered sources. The modifiers of each class
+     * are only built when they are needed for the first time.
+     */
+    private static final class Rules {
+
+        private final ImmutableSet<String> targets;
+        private final ImmutableList<ModifierSource> sources;
+        private final ConcurrentMap<String, ClassModifiers> resolved;
+
+        // Classes whose modifiers were released and cannot be rebuilt from the sources
+        private final Set<String> released = Sets.newConcurrentHashSet();
+        private volatile boolean release;
+
+        private Rules(ImmutableList<ModifierSource> sources) {
+            ImmutableSet.Builder<String> targets = ImmutableSet.builder();
+            for (ModifierSource source : sources) {
+                targets.addAll(source.getClassNames());
             }
 
-            List<String> parts = SEPARATOR.splitToList(line);
-            checkArgument(parts.size() <= 3, "Invalid access transformer config line: " + line);
+            this.targets = targets.build();
+            this.sources = sources;
+            this.resolved = new ConcurrentHashMap<String, ClassModifiers>();
+        }
+
+        private Rules(ImmutableMap<String, ClassModifiers> resolved) {
+            this.targets = resolved.keySet();
+            this.sources = ImmutableList.of();
+            this.resolved = new ConcurrentHashMap<String, ClassModifiers>(resolved);
+        }
 
-            String name = null;
-            String desc = null;
+        @Nullable
+        private ClassModifiers get(String className) {
+            ClassModifiers modifiers = this.resolved.get(className);
+            if (modifiers == null && this.targets.contains(className)) {
+                checkState(!this.released.contains(className), "The modifiers of %s were already released", className);
 
-            boolean isClass = parts.size() == 2;
-            if (!isClass) {
-                name = parts.get(2);
-                int pos = name.indexOf('(');
-                if (pos >= 0) {
-                    desc = name.substring(pos);
-                    name = name.substring(0, pos);
+                List<Modifier> list = Lists.newArrayList();
+                for (ModifierSource source : this.sources) {
+                    source.getModifiers(className, list);
+                }
+
+                modifiers = new ClassModifiers(list);
+                ClassModifiers existing = this.resolved.putIfAbsent(className, modifiers);
+                if (existing != null) {
+                    modifiers = existing;
                 }
             }
+            return modifiers;
+        }
 
-            String s = parts.get(0);
-            int access = 0;
-            if (s.startsWith("public")) {
-                access = ACC_PUBLIC;
-            } else if (s.startsWith("protected")) {
-                access = ACC_PROTECTED;
-            } else if (s.startsWith("private")) {
-                access = ACC_PRIVATE;
+        /**
+         * Marks the modifiers of the class as applied, releasing them if
+         * {@link #releaseApplied()} was called.
+         *
+         * @return {@code true} if the modifiers were released
+         */
+        private boolean applied(String className, ClassModifiers modifiers) {
+            if (!this.release) {
+                modifiers.applied = true;
+                return false;
             }
 
-            Boolean markFinal = null;
-            if (s.endsWith("+f")) {
-                markFinal = true;
-            } else if (s.endsWith("-f")) {
-                markFinal = false;
+            return release(className, modifiers);
+        }
+
+        private int releaseApplied() {
+            this.release = true;
+
+            int released = 0;
+            for (Map.Entry<String, ClassModifiers> entry : this.resolved.entrySet()) {
+                if (entry.getValue().applied && release(entry.getKey(), entry.getValue())) {
+                    released++;
+                }
             }
+            return released;
+        }
 
-            String className = parts.get(1).replace('/', '.');
-            this.builder.put(className, new Modifier(name, desc, isClass, access, markFinal));
-            return true;
+        private boolean release(String className, ClassModifiers modifiers) {
+            if (this.sources.isEmpty()) {
+                this.released.add(className);
+            }
+            return this.resolved.remove(className, modifiers);
         }
 
-        @Override
-        public Void getResult() {
-            return null;
+        private ImmutableMap<String, ClassModifiers> resolveAll() {
+            ImmutableMap.Builder<String, ClassModifiers> result = ImmutableMap.builder();
+            for (String className : this.targets) {
+                result.put(className, get(className));
+            }
+            return result.build();
         }
 
-        public ImmutableMultimap<String, Modifier> build() {
-            return this.builder.build();
+    }
+
+    static Modifier parseModifier(String line) {
+        List<String> parts = SEPARATOR.splitToList(line);
+        checkArgument(parts.size() <= 3, "Invalid access transformer config line: " + line);
+
+        String name = null;
+        String desc = null;
+
+        boolean isClass = parts.size() == 2;
+        if (!isClass) {
+            name = parts.get(2);
+            int pos = name.indexOf('(');
+            if (pos >= 0) {
+                desc = name.substring(pos);
+                name = name.substring(0, pos);
+            }
+        }
+
+        String s = parts.get(0);
+        int access = 0;
+        if (s.startsWith("public")) {
+            access = ACC_PUBLIC;
+        } else if (s.startsWith("protected")) {
+            access = ACC_PROTECTED;
+        } else if (s.startsWith("private")) {
+            access = ACC_PRIVATE;
+        }
+
+        Boolean markFinal = null;
+        if (s.endsWith("+f")) {
+            markFinal = true;
+        } else if (s.endsWith("-f")) {
+            markFinal = false;
+        }
+
+        return new Modifier(name, desc, isClass, access, markFinal);
+    }
+
+    /**
+     * The modifiers for a single class, indexed by the name of the member
+     * they apply to. The modifiers are applied in the order of the
+     * configuration, so wildcard modifiers are merged with the modifiers for
+     * specific members. Members without specific modifiers use the wildcard
+     * modifiers only.
+     */
+    private static class ClassModifiers implements Serializable {
+
+        private static final long serialVersionUID = 2L;
+
+        @Nullable private final AccessMapping classAccess;
+        @Nullable private final AccessMapping fieldWildcard;
+        private final ImmutableMap<String, AccessMapping> fields;
+        @Nullable private final AccessMapping methodWildcard;
+        private final ImmutableMap<String, AccessMapping> methods;
+
+        // Whether the modifiers were applied to the class
+        private transient volatile boolean applied;
+
+        private ClassModifiers(Collection<Modifier> modifiers) {
+            List<Modifier> classModifiers = Lists.newArrayList();
+            List<Modifier> fieldWildcards = Lists.newArrayList();
+            ListMultimap<String, Modifier> fields = ArrayListMultimap.create();
+            List<Modifier> methodWildcards = Lists.newArrayList();
+            ListMultimap<String, Modifier> methods = ArrayListMultimap.create();
+
+            for (Modifier m : modifiers) {
+                if (m.isClass) {
+                    classModifiers.add(m);
+                } else if (m.desc == null) { // Field
+                    add(m, m.name, fieldWildcards, fields);
+                } else {
+                    add(m, m.name + m.desc, methodWildcards, methods);
+                }
+            }
+
+            this.classAccess = AccessMapping.compile(classModifiers);
+            this.fieldWildcard = AccessMapping.compile(fieldWildcards);
+            this.fields = compile(fields);
+            this.methodWildcard = AccessMapping.compile(methodWildcards);
+            this.methods = compile(methods);
+        }
+
+        private static void add(Modifier m, String key, List<Modifier> wildcards, ListMultimap<String, Modifier> members) {
+            if (m.wildcard) {
+                // Applies to all members, including the ones with specific modifiers before and after this one
+                wildcards.add(m);
+                for (List<Modifier> list : Multimaps.asMap(members).values()) {
+                    list.add(m);
+                }
+            } else {
+                if (!members.containsKey(key)) {
+                    members.putAll(key, wildcards);
+                }
+                members.put(key, m);
+            }
+        }
+
+        private static ImmutableMap<String, AccessMapping> compile(ListMultimap<String, Modifier> members) {
+            ImmutableMap.Builder<String, AccessMapping> builder = ImmutableMap.builder();
+            for (Map.Entry<String, List<Modifier>> entry : Multimaps.asMap(members).entrySet()) {
+                builder.put(entry.getKey(), AccessMapping.compile(entry.getValue()));
+            }
+            return builder.build();
         }
 
     }
 
-    private static class Modifier {
+    /**
+     * Maps the access flags of a class or member to the access flags after
+     * applying a sequence of {@link Modifier}s. The mapping is computed once
+     * for all modifiers, so the flags are rewritten only once, no matter how
+     * many modifiers apply to a member.
+     */
+    private static final class AccessMapping implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final int VISIBILITY = ACC_PUBLIC | ACC_PRIVATE | ACC_PROTECTED;
+
+        // The new visibility for each combination of the visibility flags
+        private final int[] visibility;
+        private final int set;
+        private final int clear;
+
+        private AccessMapping(int[] visibility, int set, int clear) {
+            this.visibility = visibility;
+            this.set = set;
+            this.clear = clear;
+        }
+
+        @Nullable
+        private static AccessMapping compile(Iterable<Modifier> modifiers) {
+            int[] visibility = null;
+            int set = 0;
+            int clear = 0;
+
+            for (Modifier m : modifiers) {
+                if (visibility == null) {
+                    visibility = new int[VISIBILITY + 1];
+                    for (int i = 0; i < visibility.length; i++) {
+                        visibility[i] = i;
+                    }
+                }
+
+                // The visibility set by a modifier only depends on the previous visibility
+                for (int i = 0; i < visibility.length; i++) {
+                    visibility[i] = m.transform(visibility[i]) & VISIBILITY;
+                }
+
+                if (m.markFinal != null) {
+                    if (m.markFinal) {
+                        set |= ACC_FINAL;
+                        clear &= ~ACC_FINAL;
+                    } else {
+                        clear |= ACC_FINAL;
+                        set &= ~ACC_FINAL;
+                    }
+                }
+            }
+
+            return visibility != null ? new AccessMapping(visibility, set, clear) : null;
+        }
+
+        private int transform(int access) {
+            return ((access & ~VISIBILITY) | this.visibility[access & VISIBILITY]) & ~this.clear | this.set;
+        }
+
+    }
+
+    static final class Modifier implements Serializable {
+
+        private static final long serialVersionUID = 1L;
 
-        private final String name;
-        private final String desc;
-        private final boolean wildcard;
-        private final boolean isClass;
+        final String name;
+        final String desc;
+        final boolean wildcard;
+        final boolean isClass;
 
-        private final int targetAccess;
-        private final Boolean markFinal;
+        final int targetAccess;
+        final Boolean markFinal;
 
-        private Modifier(String name, String desc, boolean isClass, int targetAccess, Boolean markFinal) {
+        Modifier(String name, String desc, boolean isClass, int targetAccess, Boolean markFinal) {
             boolean wildcard = false;
             if (name != null) {
                 checkArgument(!name.isEmpty(), "name cannot be empty");
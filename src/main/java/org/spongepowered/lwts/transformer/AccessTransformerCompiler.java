@@ -0,0 +1,186 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.transformer;
+
+import static org.spongepowered.lwts.transformer.CompiledAccessTransformer.FLAG_CLASS;
+import static org.spongepowered.lwts.transformer.CompiledAccessTransformer.FLAG_FINAL;
+import static org.spongepowered.lwts.transformer.CompiledAccessTransformer.FLAG_MARK_FINAL;
+import static org.spongepowered.lwts.transformer.CompiledAccessTransformer.MAGIC;
+import static org.spongepowered.lwts.transformer.CompiledAccessTransformer.NO_STRING;
+import static org.spongepowered.lwts.transformer.CompiledAccessTransformer.VERSION;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles text access transformer configurations into a binary format that
+ * can be loaded faster. Files with the {@link AccessTransformer#COMPILED_EXTENSION}
+ * are loaded as compiled access transformers.
+ *
+ * <p>The compiler can be invoked at build time using
+ * {@code java org.spongepowered.lwts.transformer.AccessTransformerCompiler <output> <input...>},
+ * e.g. from a Gradle {@code JavaExec} task (see the README). The parent
+ * directories of the output file are created if needed.</p>
+ */
+public final class AccessTransformerCompiler {
+
+    private final ImmutableListMultimap.Builder<String, AccessTransformer.Modifier> modifiers = ImmutableListMultimap.builder();
+
+    /**
+     * Adds the access transformer configuration to the compiled file.
+     *
+     * @param url The access transformer configuration
+     * @throws IOException If an error occurs while reading the configuration
+     */
+    public void add(URL url) throws IOException {
+        AccessTransformer.TextSource source = AccessTransformer.TextSource.parse(url);
+        List<AccessTransformer.Modifier> modifiers = Lists.newArrayList();
+        for (String className : source.getClassNames()) {
+            modifiers.clear();
+            source.getModifiers(className, modifiers);
+            this.modifiers.putAll(className, modifiers);
+        }
+    }
+
+    /**
+     * Writes the compiled access transformer to the specified file.
+     *
+     * @param file The output file
+     * @throws IOException If an error occurs while writing the file
+     */
+    public void write(File file) throws IOException {
+        ImmutableListMultimap<String, AccessTransformer.Modifier> modifiers = this.modifiers.build();
+
+        // Interned strings used for class names, member names and descriptors
+        Map<String, Integer> stringIndexes = Maps.newHashMap();
+        List<String> strings = Lists.newArrayList();
+
+        ByteArrayOutputStream classIndex = new ByteArrayOutputStream();
+        DataOutputStream classOut = new DataOutputStream(classIndex);
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        DataOutputStream recordOut = new DataOutputStream(records);
+
+        int offset = 0;
+        for (Map.Entry<String, Collection<AccessTransformer.Modifier>> entry : modifiers.asMap().entrySet()) {
+            classOut.writeInt(intern(entry.getKey(), stringIndexes, strings));
+            classOut.writeInt(offset);
+            classOut.writeInt(entry.getValue().size());
+
+            for (AccessTransformer.Modifier m : entry.getValue()) {
+                int flags = 0;
+                if (m.isClass) {
+                    flags |= FLAG_CLASS;
+                }
+                if (m.markFinal != null) {
+                    flags |= FLAG_MARK_FINAL;
+                    if (m.markFinal) {
+                        flags |= FLAG_FINAL;
+                    }
+                }
+
+                recordOut.writeByte(flags);
+                recordOut.writeByte(m.targetAccess);
+                recordOut.writeInt(intern(m.name, stringIndexes, strings));
+                recordOut.writeInt(intern(m.desc, stringIndexes, strings));
+            }
+
+            offset += entry.getValue().size();
+        }
+
+        ByteArrayOutputStream stringData = new ByteArrayOutputStream();
+        DataOutputStream stringOut = new DataOutputStream(stringData);
+        int[] stringOffsets = new int[strings.size()];
+        for (int i = 0; i < strings.size(); i++) {
+            stringOffsets[i] = stringOut.size();
+            byte[] bytes = strings.get(i).getBytes(Charsets.UTF_8);
+            stringOut.writeShort(bytes.length);
+            stringOut.write(bytes);
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(stringOffsets.length);
+            for (int stringOffset : stringOffsets) {
+                out.writeInt(stringOffset);
+            }
+            out.writeInt(stringData.size());
+            stringData.writeTo(out);
+
+            out.writeInt(modifiers.keySet().size());
+            classIndex.writeTo(out);
+            records.writeTo(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static int intern(String s, Map<String, Integer> indexes, List<String> strings) {
+        if (s == null) {
+            return NO_STRING;
+        }
+
+        Integer index = indexes.get(s);
+        if (index == null) {
+            index = strings.size();
+            indexes.put(s, index);
+            strings.add(s);
+        }
+        return index;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: AccessTransformerCompiler <output> <input...>");
+            System.exit(1);
+            return;
+        }
+
+        AccessTransformerCompiler compiler = new AccessTransformerCompiler();
+        for (int i = 1; i < args.length; i++) {
+            compiler.add(new File(args[i]).toURI().toURL());
+        }
+        File output = new File(args[0]);
+        Files.createParentDirs(output);
+        compiler.write(output);
+    }
+
+}
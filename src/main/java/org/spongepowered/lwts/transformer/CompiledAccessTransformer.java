@@ -0,0 +1,167 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.transformer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Resources;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads access transformers compiled using {@link AccessTransformerCompiler}.
+ *
+ * <p>Only the string table and the class index are read when the file is
+ * opened. The modifiers of a class are decoded once they are requested.
+ * Compiled access transformers on the file system are memory-mapped.</p>
+ */
+final class CompiledAccessTransformer implements AccessTransformer.ModifierSource {
+
+    static final int MAGIC = 0x4C574154; // LWAT
+    static final int VERSION = 1;
+
+    static final int RECORD_SIZE = 10;
+
+    static final int FLAG_CLASS = 1;
+    static final int FLAG_MARK_FINAL = 2;
+    static final int FLAG_FINAL = 4;
+
+    static final int NO_STRING = -1;
+
+    private final ByteBuffer buffer;
+    private final int[] strings;
+    private final int records;
+    private final ImmutableMap<String, Entry> classes;
+
+    private CompiledAccessTransformer(ByteBuffer buffer) {
+        checkArgument(buffer.getInt() == MAGIC, "Not a compiled access transformer");
+        checkArgument(buffer.getInt() == VERSION, "Unsupported compiled access transformer version");
+
+        // String table: offsets of all strings, followed by the strings
+        this.strings = new int[buffer.getInt()];
+        int stringData = buffer.position() + this.strings.length * 4 + 4;
+        for (int i = 0; i < this.strings.length; i++) {
+            this.strings[i] = stringData + buffer.getInt();
+        }
+        buffer.position(stringData + buffer.getInt());
+        this.buffer = buffer;
+
+        // Class index: class name, offset and number of modifiers
+        int classCount = buffer.getInt();
+        ImmutableMap.Builder<String, Entry> classes = ImmutableMap.builder();
+        for (int i = 0; i < classCount; i++) {
+            String className = getString(buffer.getInt());
+            classes.put(className, new Entry(buffer.getInt(), buffer.getInt()));
+        }
+
+        this.records = buffer.position();
+        this.classes = classes.build();
+    }
+
+    @Override
+    public Set<String> getClassNames() {
+        return this.classes.keySet();
+    }
+
+    @Override
+    public void getModifiers(String className, List<AccessTransformer.Modifier> modifiers) {
+        Entry entry = this.classes.get(className);
+        if (entry == null) {
+            return;
+        }
+
+        ByteBuffer buffer = this.buffer.duplicate();
+        buffer.position(this.records + entry.offset * RECORD_SIZE);
+        for (int i = 0; i < entry.count; i++) {
+            int flags = buffer.get();
+            int access = buffer.get();
+            String name = getString(buffer.getInt());
+            String desc = getString(buffer.getInt());
+
+            Boolean markFinal = null;
+            if ((flags & FLAG_MARK_FINAL) != 0) {
+                markFinal = (flags & FLAG_FINAL) != 0;
+            }
+
+            modifiers.add(new AccessTransformer.Modifier(name, desc, (flags & FLAG_CLASS) != 0, access, markFinal));
+        }
+    }
+
+    private String getString(int index) {
+        if (index == NO_STRING) {
+            return null;
+        }
+
+        ByteBuffer buffer = this.buffer.duplicate();
+        buffer.position(this.strings[index]);
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, Charsets.UTF_8);
+    }
+
+    static CompiledAccessTransformer open(URL url) throws IOException {
+        if (url.getProtocol().equals("file")) {
+            File file;
+            try {
+                file = new File(url.toURI());
+            } catch (URISyntaxException e) {
+                file = new File(url.getPath());
+            }
+
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                FileChannel channel = raf.getChannel();
+                return new CompiledAccessTransformer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            } finally {
+                raf.close();
+            }
+        }
+
+        return new CompiledAccessTransformer(ByteBuffer.wrap(Resources.toByteArray(url)));
+    }
+
+    private static final class Entry {
+
+        private final int offset;
+        private final int count;
+
+        private Entry(int offset, int count) {
+            this.offset = offset;
+            this.count = count;
+        }
+
+    }
+
+}
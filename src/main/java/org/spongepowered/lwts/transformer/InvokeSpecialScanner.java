@@ -0,0 +1,149 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.transformer;
+
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+
+import com.google.common.collect.ImmutableSet;
+import org.objectweb.asm.ClassReader;
+
+import java.util.Set;
+
+/**
+ * Finds the methods that may call one of the specified methods of the same
+ * class using {@code INVOKESPECIAL}, without decoding the instructions of
+ * the class.
+ *
+ * <p>The constant pool is searched for method references to the specified
+ * methods first. If there are any, the code of each method is searched for
+ * the byte pattern of an {@code INVOKESPECIAL} instruction referencing them.
+ * The result may contain methods that do not actually call the methods (if
+ * an operand of another instruction has the same bytes), but never misses
+ * a method that does.</p>
+ */
+final class InvokeSpecialScanner {
+
+    private static final int METHODREF = 10;
+    private static final int INTERFACE_METHODREF = 11;
+
+    private static final String CODE_ATTRIBUTE = "Code";
+
+    private InvokeSpecialScanner() {
+    }
+
+    /**
+     * Returns the methods of the class that may call one of the specified
+     * methods using {@code INVOKESPECIAL}.
+     *
+     * @param reader The class reader
+     * @param methods The name and descriptor of the methods
+     * @return The name and descriptor of the calling methods
+     */
+    static Set<String> findCallers(ClassReader reader, Set<String> methods) {
+        char[] buf = new char[reader.getMaxStringLength()];
+        String owner = reader.getClassName();
+
+        // Constant pool indexes of the references to the methods
+        boolean[] references = null;
+        int count = reader.getItemCount();
+        for (int i = 1; i < count; i++) {
+            int offset = reader.getItem(i);
+            if (offset == 0) {
+                continue; // Second slot of long and double constants
+            }
+
+            int tag = reader.b[offset - 1];
+            if ((tag != METHODREF && tag != INTERFACE_METHODREF) || !owner.equals(reader.readClass(offset, buf))) {
+                continue;
+            }
+
+            int nameAndType = reader.getItem(reader.readUnsignedShort(offset + 2));
+            if (methods.contains(reader.readUTF8(nameAndType, buf) + reader.readUTF8(nameAndType + 2, buf))) {
+                if (references == null) {
+                    references = new boolean[count];
+                }
+                references[i] = true;
+            }
+        }
+
+        if (references == null) {
+            return ImmutableSet.of();
+        }
+
+        // Skip access flags, this class and super class
+        int pos = reader.header + 6;
+        pos += 2 + reader.readUnsignedShort(pos) * 2; // Interfaces
+
+        int fields = reader.readUnsignedShort(pos);
+        pos += 2;
+        for (; fields > 0; fields--) {
+            pos = skipAttributes(reader, pos + 6);
+        }
+
+        ImmutableSet.Builder<String> result = ImmutableSet.builder();
+        int methodCount = reader.readUnsignedShort(pos);
+        pos += 2;
+        for (; methodCount > 0; methodCount--) {
+            String method = reader.readUTF8(pos + 2, buf) + reader.readUTF8(pos + 4, buf);
+            int attributes = reader.readUnsignedShort(pos + 6);
+            pos += 8;
+
+            for (; attributes > 0; attributes--) {
+                int length = reader.readInt(pos + 2);
+                // Code attribute: max_stack (u2), max_locals (u2), code_length (u4), code
+                if (CODE_ATTRIBUTE.equals(reader.readUTF8(pos, buf))
+                        && containsCall(reader.b, pos + 14, reader.readInt(pos + 10), references)) {
+                    result.add(method);
+                }
+                pos += 6 + length;
+            }
+        }
+
+        return result.build();
+    }
+
+    private static int skipAttributes(ClassReader reader, int pos) {
+        int attributes = reader.readUnsignedShort(pos);
+        pos += 2;
+        for (; attributes > 0; attributes--) {
+            pos += 6 + reader.readInt(pos + 2);
+        }
+        return pos;
+    }
+
+    private static boolean containsCall(byte[] b, int start, int length, boolean[] references) {
+        int end = start + length - 2;
+        for (int i = start; i < end; i++) {
+            if ((b[i] & 0xFF) == INVOKESPECIAL) {
+                int index = (b[i + 1] & 0xFF) << 8 | b[i + 2] & 0xFF;
+                if (index < references.length && references[index]) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+}
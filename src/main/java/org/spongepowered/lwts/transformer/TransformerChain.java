@@ -0,0 +1,357 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.transformer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import com.google.common.hash.HashCode;
+import net.minecraft.launchwrapper.IClassTransformer;
+import net.minecraft.launchwrapper.LaunchClassLoader;
+import org.spongepowered.lwts.transformer.cache.TransformedClassCache;
+import org.spongepowered.lwts.transformer.dump.TransformerDump;
+import org.spongepowered.lwts.transformer.profile.TransformerProfiler;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+/**
+ * Replaces the transformers registered on a {@link LaunchClassLoader} with a
+ * single transformer that runs them in order. This allows LWTS to add
+ * features around the complete transformer chain, such as caching the
+ * transformed class bytes, transforming classes ahead of time, profiling
+ * the transformers or dumping the output of each transformer.
+ *
+ * <p>Transformers that declare their {@link TransformerTargets} are only run
+ * for the targeted classes. Classes that are not targeted by any transformer
+ * are returned unchanged without running the chain at all.</p>
+ */
+public final class TransformerChain implements IClassTransformer {
+
+    private static final int[] NO_TRANSFORMERS = new int[0];
+
+    private final ImmutableList<IClassTransformer> transformers;
+
+    // Indices of the transformers to run for the targeted classes
+    private final ImmutableMap<String, int[]> index;
+    // Transformers that are run for all classes, or null if
+    // the transformers need to be selected by package
+    @Nullable private final int[] untargeted;
+    private final TransformerTargets[] targets;
+
+    private final ConcurrentMap<String, PreparedClass> prepared = new ConcurrentHashMap<String, PreparedClass>();
+
+    @Nullable private TransformedClassCache cache;
+    @Nullable private TransformerProfiler profiler;
+    @Nullable private TransformerDump dump;
+
+    private TransformerChain(List<IClassTransformer> transformers, Map<String, TransformerTargets> declaredTargets) {
+        this.transformers = ImmutableList.copyOf(transformers);
+        this.targets = new TransformerTargets[transformers.size()];
+
+        boolean packageTargets = false;
+        Set<String> targetedClasses = Sets.newHashSet();
+        for (int i = 0; i < this.targets.length; i++) {
+            IClassTransformer transformer = this.transformers.get(i);
+            TransformerTargets targets = declaredTargets.get(transformer.getClass().getName());
+            if (targets == null && transformer instanceof TargetedTransformer) {
+                targets = ((TargetedTransformer) transformer).getTargets();
+            }
+
+            if (targets != null) {
+                this.targets[i] = targets;
+                targetedClasses.addAll(targets.getClassNames());
+                packageTargets |= !targets.getPackages().isEmpty();
+            }
+        }
+
+        this.untargeted = packageTargets ? null : select(null);
+
+        ImmutableMap.Builder<String, int[]> index = ImmutableMap.builder();
+        for (String className : targetedClasses) {
+            index.put(className, select(className));
+        }
+        this.index = index.build();
+    }
+
+    private int[] select(@Nullable String transformedName) {
+        int[] result = new int[this.targets.length];
+        int count = 0;
+        for (int i = 0; i < this.targets.length; i++) {
+            TransformerTargets targets = this.targets[i];
+            if (targets == null || (transformedName != null && targets.matches(transformedName))) {
+                result[count++] = i;
+            }
+        }
+        return count > 0 ? Arrays.copyOf(result, count) : NO_TRANSFORMERS;
+    }
+
+    private int[] getSelectedTransformers(String transformedName) {
+        int[] selected = this.index.get(transformedName);
+        if (selected != null) {
+            return selected;
+        }
+        return this.untargeted != null ? this.untargeted : select(transformedName);
+    }
+
+    /**
+     * Returns the transformers that are run by this chain.
+     *
+     * @return The transformers
+     */
+    public ImmutableList<IClassTransformer> getTransformers() {
+        return this.transformers;
+    }
+
+    /**
+     * Sets the cache that is used to lookup and store transformed classes.
+     *
+     * @param cache The cache to use
+     */
+    public void setCache(TransformedClassCache cache) {
+        this.cache = checkNotNull(cache, "cache");
+    }
+
+    /**
+     * Sets the profiler that records the time spent in each transformer.
+     *
+     * @param profiler The profiler to use
+     */
+    public void setProfiler(TransformerProfiler profiler) {
+        this.profiler = checkNotNull(profiler, "profiler");
+    }
+
+    /**
+     * Sets the dump that records the output of each transformer for the
+     * selected classes.
+     *
+     * @param dump The dump to use
+     */
+    public void setDump(TransformerDump dump) {
+        this.dump = checkNotNull(dump, "dump");
+    }
+
+    /**
+     * Transforms the specified class ahead of time. The result is returned
+     * when the class is loaded by the class loader with the same original
+     * bytes.
+     *
+     * @param name The untransformed class name
+     * @param transformedName The transformed class name
+     * @param bytes The original class bytes
+     */
+    public void prepare(String name, String transformedName, byte[] bytes) {
+        checkNotNull(bytes, "bytes");
+        byte[] result = transform(name, transformedName, bytes);
+        this.prepared.put(transformedName, new PreparedClass(bytes, result));
+    }
+
+    /**
+     * Releases the results of all classes that were transformed ahead of
+     * time, but were not loaded yet.
+     *
+     * @return The number of released classes
+     */
+    public int clearPrepared() {
+        int count = 0;
+        for (String transformedName : this.prepared.keySet()) {
+            if (this.prepared.remove(transformedName) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public byte[] transform(String name, String transformedName, byte[] bytes) {
+        int[] selected = getSelectedTransformers(transformedName);
+        if (selected.length == 0) {
+            return bytes;
+        }
+
+        if (bytes != null && !this.prepared.isEmpty()) {
+            PreparedClass prepared = this.prepared.remove(transformedName);
+            if (prepared != null && (prepared.original == bytes || Arrays.equals(prepared.original, bytes))) {
+                return prepared.result;
+            }
+        }
+
+        // Dumped classes always need to be passed to the transformers
+        if (bytes == null || this.cache == null || !isTargeted(selected) || (this.dump != null && this.dump.isSelected(transformedName))) {
+            return runTransformers(selected, name, transformedName, bytes);
+        }
+
+        HashCode key = this.cache.key(name, transformedName, bytes);
+        byte[] result = this.cache.get(key);
+        if (result == null) {
+            result = runTransformers(selected, name, transformedName, bytes);
+            if (result == bytes || Arrays.equals(result, bytes)) {
+                this.cache.putUnchanged(key);
+            } else if (result != null) {
+                this.cache.put(key, result);
+            }
+        } else if (result.length == 0) {
+            return bytes;
+        }
+
+        return result;
+    }
+
+    // Only classes targeted by at least one transformer are cached, so
+    // classes that are only passed to transformers without targets are
+    // loaded without hashing them
+    private boolean isTargeted(int[] selected) {
+        for (int i : selected) {
+            if (this.targets[i] != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private byte[] runTransformers(int[] selected, String name, String transformedName, byte[] bytes) {
+        TransformerDump dump = this.dump;
+        if (dump != null && !dump.isSelected(transformedName)) {
+            dump = null;
+        }
+
+        if (this.profiler != null || dump != null) {
+            return runTransformers(selected, name, transformedName, bytes, this.profiler, dump);
+        }
+
+        for (int i : selected) {
+            bytes = this.transformers.get(i).transform(name, transformedName, bytes);
+        }
+        return bytes;
+    }
+
+    private byte[] runTransformers(int[] selected, String name, String transformedName, byte[] bytes,
+            @Nullable TransformerProfiler profiler, @Nullable TransformerDump dump) {
+        int originalSize = size(bytes);
+        long start = System.nanoTime();
+
+        if (dump != null) {
+            dump.recordOriginal(transformedName, bytes);
+        }
+
+        for (int i : selected) {
+            byte[] input = bytes;
+            long transformerStart = System.nanoTime();
+            bytes = this.transformers.get(i).transform(name, transformedName, bytes);
+            long time = System.nanoTime() - transformerStart;
+
+            if (profiler != null) {
+                profiler.recordTransformer(i, time, size(input), size(bytes));
+            }
+            if (dump != null) {
+                dump.recordStage(transformedName, i, input, bytes);
+            }
+        }
+
+        if (profiler != null) {
+            profiler.recordClass(transformedName, System.nanoTime() - start, originalSize, size(bytes));
+        }
+        return bytes;
+    }
+
+    private static int size(@Nullable byte[] bytes) {
+        return bytes != null ? bytes.length : 0;
+    }
+
+    private static final class PreparedClass {
+
+        private final byte[] original;
+        private final byte[] result;
+
+        private PreparedClass(byte[] original, byte[] result) {
+            this.original = original;
+            this.result = result;
+        }
+
+    }
+
+    /**
+     * Installs the transformer chain on the specified class loader, replacing
+     * all currently registered transformers. If the chain was already
+     * installed the existing instance is returned.
+     *
+     * @param loader The class loader to install the chain on
+     * @return The installed transformer chain
+     */
+    public static TransformerChain install(LaunchClassLoader loader) {
+        return install(loader, ImmutableMap.<String, TransformerTargets>of());
+    }
+
+    /**
+     * Installs the transformer chain on the specified class loader, replacing
+     * all currently registered transformers. If the chain was already
+     * installed the existing instance is returned and the specified targets
+     * are ignored.
+     *
+     * <p>The declared targets take precedence over the targets of
+     * {@link TargetedTransformer}s.</p>
+     *
+     * @param loader The class loader to install the chain on
+     * @param declaredTargets The targets of the transformers, by the class
+     *     name of the transformer
+     * @return The installed transformer chain
+     */
+    public static TransformerChain install(LaunchClassLoader loader, Map<String, TransformerTargets> declaredTargets) {
+        List<IClassTransformer> transformers = getTransformerList(loader);
+        synchronized (transformers) {
+            if (transformers.size() == 1 && transformers.get(0) instanceof TransformerChain) {
+                return (TransformerChain) transformers.get(0);
+            }
+
+            TransformerChain chain = new TransformerChain(transformers, declaredTargets);
+            transformers.clear();
+            transformers.add(chain);
+            return chain;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<IClassTransformer> getTransformerList(LaunchClassLoader loader) {
+        // LaunchClassLoader only exposes an unmodifiable view of the transformers
+        try {
+            Field field = LaunchClassLoader.class.getDeclaredField("transformers");
+            field.setAccessible(true);
+            return (List<IClassTransformer>) field.get(loader);
+        } catch (Exception e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+}
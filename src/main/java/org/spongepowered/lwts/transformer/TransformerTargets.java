@@ -0,0 +1,126 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.transformer;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.spongepowered.lwts.loader.PackageTrie;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The classes a transformer can modify. All other classes are not passed to
+ * the transformer when it is run by a {@link TransformerChain}.
+ *
+ * @see TargetedTransformer
+ */
+public final class TransformerTargets implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ImmutableSet<String> classNames;
+    private final ImmutableList<String> packages;
+
+    private transient PackageTrie packageTrie;
+
+    private TransformerTargets(ImmutableSet<String> classNames, ImmutableList<String> packages) {
+        this.classNames = classNames;
+        this.packages = packages;
+        this.packageTrie = createTrie(packages);
+    }
+
+    /**
+     * Creates targets for the specified classes.
+     *
+     * @param classNames The transformed names of the classes
+     * @return The transformer targets
+     */
+    public static TransformerTargets classes(Iterable<String> classNames) {
+        return new TransformerTargets(ImmutableSet.copyOf(classNames), ImmutableList.<String>of());
+    }
+
+    /**
+     * Creates targets for the specified classes.
+     *
+     * @param classNames The transformed names of the classes
+     * @return The transformer targets
+     */
+    public static TransformerTargets classes(String... classNames) {
+        return classes(Arrays.asList(classNames));
+    }
+
+    /**
+     * Creates targets for all classes starting with one of the specified
+     * prefixes.
+     *
+     * @param packages The prefixes of the classes, e.g. {@code com.example.}
+     * @return The transformer targets
+     */
+    public static TransformerTargets packages(String... packages) {
+        return new TransformerTargets(ImmutableSet.<String>of(), ImmutableList.copyOf(packages));
+    }
+
+    /**
+     * Returns the transformed names of the targeted classes.
+     *
+     * @return The targeted classes
+     */
+    public ImmutableSet<String> getClassNames() {
+        return this.classNames;
+    }
+
+    /**
+     * Returns the prefixes of the targeted classes.
+     *
+     * @return The targeted packages
+     */
+    public ImmutableList<String> getPackages() {
+        return this.packages;
+    }
+
+    /**
+     * Returns whether the specified class is targeted.
+     *
+     * @param transformedName The transformed class name
+     * @return {@code true} if the class is targeted
+     */
+    public boolean matches(String transformedName) {
+        return this.classNames.contains(transformedName) || this.packageTrie.matches(transformedName);
+    }
+
+    private Object readResolve() {
+        return new TransformerTargets(this.classNames, this.packages);
+    }
+
+    private static PackageTrie createTrie(ImmutableList<String> packages) {
+        PackageTrie trie = new PackageTrie();
+        for (String packageName : packages) {
+            trie.add(packageName);
+        }
+        return trie;
+    }
+
+}
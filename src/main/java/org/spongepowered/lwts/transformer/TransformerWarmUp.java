@@ -0,0 +1,227 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.transformer;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.minecraft.launchwrapper.IClassNameTransformer;
+import net.minecraft.launchwrapper.IClassTransformer;
+import net.minecraft.launchwrapper.LaunchClassLoader;
+import net.minecraft.launchwrapper.LogWrapper;
+import org.spongepowered.lwts.loader.ClassLoaderExclusions;
+import org.spongepowered.lwts.loader.ClassPathIndex;
+import org.spongepowered.lwts.loader.PackageTrie;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import javax.annotation.Nullable;
+
+/**
+ * Transforms classes in parallel before they are loaded by the
+ * {@link LaunchClassLoader}. The transformed bytes are handed over to the
+ * class loader using {@link TransformerChain#prepare(String, String, byte[])}.
+ *
+ * <p><b>Note:</b> This requires all registered transformers to be
+ * thread-safe.</p>
+ */
+public final class TransformerWarmUp {
+
+    private static final String CLASS_EXTENSION = ".class";
+
+    private final LaunchClassLoader loader;
+    private final TransformerChain chain;
+    private final ClassLoaderExclusions exclusions;
+    @Nullable private final IClassNameTransformer renameTransformer;
+
+    public TransformerWarmUp(LaunchClassLoader loader, TransformerChain chain) {
+        this.loader = loader;
+        this.chain = chain;
+        this.exclusions = ClassLoaderExclusions.of(loader);
+
+        IClassNameTransformer renameTransformer = null;
+        for (IClassTransformer transformer : chain.getTransformers()) {
+            if (transformer instanceof IClassNameTransformer) {
+                renameTransformer = (IClassNameTransformer) transformer;
+                break;
+            }
+        }
+        this.renameTransformer = renameTransformer;
+    }
+
+    /**
+     * Transforms the specified classes using the given number of threads and
+     * waits until all classes were transformed.
+     *
+     * @param classNames The transformed names of the classes to transform
+     * @param threads The number of threads to use
+     */
+    public void run(Collection<String> classNames, int threads) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("LWTS warm-up #%d").setDaemon(true).build());
+        try {
+            List<Callable<Void>> tasks = Lists.newArrayListWithCapacity(classNames.size());
+            for (final String className : classNames) {
+                if (this.exclusions.isExcluded(className)) {
+                    // Never passed to the transformers
+                    continue;
+                }
+
+                tasks.add(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws IOException {
+                        prepare(className);
+                        return null;
+                    }
+                });
+            }
+
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // Not fatal, the class will be transformed again when it is loaded
+                    LogWrapper.warning("Failed to transform class ahead of time: %s", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void prepare(String transformedName) throws IOException {
+        String name = this.renameTransformer != null ? this.renameTransformer.unmapClassName(transformedName) : transformedName;
+        byte[] bytes = this.loader.getClassBytes(name);
+        if (bytes != null) {
+            this.chain.prepare(name, transformedName, bytes);
+        }
+    }
+
+    /**
+     * Searches the sources of the class loader for all classes in the
+     * specified packages.
+     *
+     * @param packages The transformed package names, e.g.
+     *     {@code com.example.}
+     * @return The transformed names of all classes in the packages
+     * @throws IOException If an error occurs while searching the sources
+     */
+    public Set<String> findClasses(Collection<String> packages) throws IOException {
+        PackageTrie filter = new PackageTrie();
+        for (String packageName : packages) {
+            filter.add(packageName);
+        }
+
+        Set<String> result = Sets.newLinkedHashSet();
+        List<URL> sources = this.loader.getSources();
+
+        ClassPathIndex index = ClassPathIndex.get(this.loader);
+        if (index != null) {
+            for (String className : index.getClassNames()) {
+                addClass(className, filter, result);
+            }
+
+            // Only search the sources that could not be indexed
+            sources = sources.subList(index.getIndexedSources(), sources.size());
+        }
+
+        for (URL url : sources) {
+            File file;
+            try {
+                file = new File(url.toURI());
+            } catch (URISyntaxException e) {
+                continue;
+            } catch (IllegalArgumentException e) {
+                continue; // Not a file URL
+            }
+
+            if (file.isDirectory()) {
+                findClasses(file, "", filter, result);
+            } else if (file.isFile()) {
+                JarFile jar = new JarFile(file);
+                try {
+                    Enumeration<JarEntry> entries = jar.entries();
+                    while (entries.hasMoreElements()) {
+                        addClassFile(entries.nextElement().getName(), filter, result);
+                    }
+                } finally {
+                    jar.close();
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private void findClasses(File dir, String path, PackageTrie filter, Set<String> result) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            String name = path + file.getName();
+            if (file.isDirectory()) {
+                findClasses(file, name + '/', filter, result);
+            } else {
+                addClassFile(name, filter, result);
+            }
+        }
+    }
+
+    private void addClassFile(String path, PackageTrie filter, Set<String> result) {
+        if (path.endsWith(CLASS_EXTENSION)) {
+            addClass(path.substring(0, path.length() - CLASS_EXTENSION.length()).replace('/', '.'), filter, result);
+        }
+    }
+
+    private void addClass(String name, PackageTrie filter, Set<String> result) {
+        // The sources contain the untransformed class names
+        String transformedName = this.renameTransformer != null ? this.renameTransformer.remapClassName(name) : name;
+        if (filter.matches(transformedName)) {
+            result.add(transformedName);
+        }
+    }
+
+}
@@ -0,0 +1,476 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.transformer.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Resources;
+import net.minecraft.launchwrapper.IClassTransformer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+/**
+ * Persistent cache for transformed class bytes that can be shared between
+ * multiple test JVMs.
+ *
+ * <p>Entries are keyed by a hash of the class name and the original class
+ * bytes. Each cache file belongs to a fingerprint of the transformer
+ * configuration (see {@link #fingerprint(Class, Iterable, Iterable)}), so
+ * changing the tweaker or its configurations automatically invalidates all
+ * previously cached classes.</p>
+ *
+ * <p>Existing entries are memory-mapped when the cache is opened. New entries
+ * are kept in memory and appended to the cache file by {@link #save()}. If
+ * the cache file would grow beyond its maximum size, it is replaced by a new
+ * file that only contains the entries used by this JVM. Classes that are not
+ * changed by the transformers are stored without their bytes.</p>
+ */
+public final class TransformedClassCache {
+
+    private static final int MAGIC = 0x4C575453; // LWTS
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+
+    private static final String EXTENSION = ".cache";
+
+    // Cache files of other fingerprints are only deleted if they were not used for this long
+    private static final long STALE_AGE = TimeUnit.DAYS.toMillis(7);
+    private static final byte[] UNCHANGED = new byte[0];
+
+    /**
+     * The default maximum size of a cache file in bytes.
+     */
+    public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+    private static final HashFunction HASH = Hashing.sha1();
+    private static final int KEY_SIZE = HASH.bits() / 8;
+
+    private final File file;
+    private final long maxSize;
+    @Nullable private final ByteBuffer buffer;
+    private final ImmutableMap<HashCode, Entry> entries;
+    private final Set<HashCode> used = Sets.newConcurrentHashSet();
+    private final ConcurrentMap<HashCode, byte[]> added = new ConcurrentHashMap<HashCode, byte[]>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private TransformedClassCache(File file, long maxSize, @Nullable ByteBuffer buffer, ImmutableMap<HashCode, Entry> entries) {
+        this.file = file;
+        this.maxSize = maxSize;
+        this.buffer = buffer;
+        this.entries = entries;
+    }
+
+    /**
+     * Returns the cache key for the specified class.
+     *
+     * @param name The untransformed class name
+     * @param transformedName The transformed class name
+     * @param bytes The original class bytes
+     * @return The cache key
+     */
+    public HashCode key(String name, String transformedName, byte[] bytes) {
+        return HASH.newHasher()
+                .putString(name, Charsets.UTF_8)
+                .putByte((byte) 0)
+                .putString(transformedName, Charsets.UTF_8)
+                .putByte((byte) 0)
+                .putBytes(bytes)
+                .hash();
+    }
+
+    /**
+     * Looks up the transformed bytes for the specified key.
+     *
+     * @param key The cache key
+     * @return The transformed class bytes, an empty array if the class is
+     *     not changed by the transformers, or {@code null} if not cached
+     */
+    @Nullable
+    public byte[] get(HashCode key) {
+        Entry entry = this.entries.get(key);
+        if (entry != null) {
+            this.hits.incrementAndGet();
+            this.used.add(key);
+            return entry.read(this.buffer);
+        }
+
+        byte[] result = this.added.get(key);
+        if (result != null) {
+            this.hits.incrementAndGet();
+            return result.length > 0 ? result.clone() : result;
+        }
+
+        this.misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Adds the transformed bytes for the specified key to the cache. The entry
+     * is persisted on the next call to {@link #save()}.
+     *
+     * @param key The cache key
+     * @param bytes The transformed class bytes
+     */
+    public void put(HashCode key, byte[] bytes) {
+        checkArgument(key.bits() == HASH.bits(), "Invalid cache key: %s", key);
+        checkNotNull(bytes, "bytes");
+        if (!this.entries.containsKey(key)) {
+            this.added.putIfAbsent(key, bytes.clone());
+        }
+    }
+
+    /**
+     * Records that the class with the specified key is not changed by the
+     * transformers. Only the key is persisted on the next call to
+     * {@link #save()}.
+     *
+     * @param key The cache key
+     */
+    public void putUnchanged(HashCode key) {
+        checkArgument(key.bits() == HASH.bits(), "Invalid cache key: %s", key);
+        if (!this.entries.containsKey(key)) {
+            this.added.putIfAbsent(key, UNCHANGED);
+        }
+    }
+
+    /**
+     * Returns the number of lookups that were served from the cache.
+     *
+     * @return The number of cache hits
+     */
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Returns the number of lookups that were not found in the cache.
+     *
+     * @return The number of cache misses
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Appends all entries added since the cache was opened to the cache file.
+     * Other JVMs sharing the same cache file are locked out while the entries
+     * are written.
+     *
+     * <p>If the cache file would exceed its maximum size, it is replaced with
+     * a new file containing the entries used by this JVM and as many of the
+     * added entries as fit. JVMs that still have the old file mapped continue
+     * to use it until they are restarted.</p>
+     *
+     * @throws IOException If an error occurs while writing the cache file
+     */
+    public void save() throws IOException {
+        if (this.added.isEmpty()) {
+            return;
+        }
+
+        RandomAccessFile file = new RandomAccessFile(this.file, "rw");
+        try {
+            FileChannel channel = file.getChannel();
+            FileLock lock = channel.lock();
+            try {
+                if (!hasValidHeader(channel)) {
+                    channel.truncate(0);
+                    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                    header.putInt(MAGIC).putInt(VERSION).flip();
+                    writeFully(channel, header, 0);
+                }
+
+                long position = channel.size();
+                long size = position;
+                for (byte[] bytes : this.added.values()) {
+                    size += recordSize(bytes.length);
+                }
+
+                if (size > this.maxSize) {
+                    compact();
+                } else {
+                    for (Map.Entry<HashCode, byte[]> entry : this.added.entrySet()) {
+                        position += writeRecord(channel, entry.getKey(), ByteBuffer.wrap(entry.getValue()), position);
+                    }
+                    channel.force(false);
+                }
+
+                this.added.clear();
+            } finally {
+                lock.release();
+            }
+        } finally {
+            file.close();
+        }
+    }
+
+    private void compact() throws IOException {
+        // The cache file may still be mapped by other JVMs, so it must not be truncated.
+        // Write a new file instead and replace the old one.
+        File temp = File.createTempFile(this.file.getName(), ".tmp", this.file.getParentFile());
+        try {
+            RandomAccessFile file = new RandomAccessFile(temp, "rw");
+            try {
+                FileChannel channel = file.getChannel();
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION).flip();
+                long position = writeFully(channel, header, 0);
+
+                for (HashCode key : this.used) {
+                    Entry entry = this.entries.get(key);
+                    position += writeRecord(channel, key, entry.slice(this.buffer), position);
+                }
+
+                for (Map.Entry<HashCode, byte[]> entry : this.added.entrySet()) {
+                    byte[] bytes = entry.getValue();
+                    if (position + recordSize(bytes.length) <= this.maxSize) {
+                        position += writeRecord(channel, entry.getKey(), ByteBuffer.wrap(bytes), position);
+                    }
+                }
+
+                channel.force(false);
+            } finally {
+                file.close();
+            }
+
+            if (!temp.renameTo(this.file)) {
+                throw new IOException("Failed to replace cache file " + this.file);
+            }
+        } finally {
+            if (temp.exists()) {
+                temp.delete();
+            }
+        }
+    }
+
+    private static long recordSize(int length) {
+        return KEY_SIZE + 4 + (long) length;
+    }
+
+    private static int writeRecord(FileChannel channel, HashCode key, ByteBuffer bytes, long position) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(KEY_SIZE + 4);
+        header.put(key.asBytes()).putInt(bytes.remaining()).flip();
+        int written = writeFully(channel, header, position);
+        return written + writeFully(channel, bytes, position + written);
+    }
+
+    private static boolean hasValidHeader(FileChannel channel) throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            return false;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        header.flip();
+        return header.remaining() == HEADER_SIZE && header.getInt() == MAGIC && header.getInt() == VERSION;
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    /**
+     * Opens the cache for the specified fingerprint in the given directory,
+     * with the {@link #DEFAULT_MAX_SIZE default maximum size}. Cache files for
+     * other fingerprints are deleted if they were not used for a week.
+     *
+     * @param dir The cache directory
+     * @param fingerprint The fingerprint of the transformer configuration
+     * @return The opened cache
+     * @throws IOException If an error occurs while reading the cache file
+     */
+    public static TransformedClassCache open(File dir, HashCode fingerprint) throws IOException {
+        return open(dir, fingerprint, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Opens the cache for the specified fingerprint in the given directory.
+     * Cache files for other fingerprints are deleted if they were not used
+     * for a week, since they may still be used by other test tasks sharing
+     * the directory. Cache files exceeding the maximum size are ignored and
+     * replaced on the next {@link #save()}.
+     *
+     * @param dir The cache directory
+     * @param fingerprint The fingerprint of the transformer configuration
+     * @param maxSize The maximum size of the cache file in bytes
+     * @return The opened cache
+     * @throws IOException If an error occurs while reading the cache file
+     */
+    public static TransformedClassCache open(File dir, HashCode fingerprint, long maxSize) throws IOException {
+        checkArgument(maxSize > HEADER_SIZE && maxSize <= Integer.MAX_VALUE, "Invalid maximum cache size: %s", maxSize);
+        checkArgument(dir.isDirectory() || dir.mkdirs(), "Failed to create cache directory %s", dir);
+
+        String fileName = fingerprint + EXTENSION;
+        long staleTime = System.currentTimeMillis() - STALE_AGE;
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(EXTENSION) && !file.getName().equals(fileName) && file.lastModified() < staleTime) {
+                    // Outdated cache, may fail if the file is still used by another JVM
+                    file.delete();
+                }
+            }
+        }
+
+        File file = new File(dir, fileName);
+        if (!file.isFile()) {
+            return new TransformedClassCache(file, maxSize, null, ImmutableMap.<HashCode, Entry>of());
+        }
+
+        MappedByteBuffer buffer;
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            // Wait until other JVMs have finished writing to the cache
+            FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+            try {
+                if (!hasValidHeader(channel) || channel.size() > maxSize) {
+                    return new TransformedClassCache(file, maxSize, null, ImmutableMap.<HashCode, Entry>of());
+                }
+
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } finally {
+                lock.release();
+            }
+        } finally {
+            raf.close();
+        }
+
+        // Keep the cache from being deleted as stale by other fingerprints
+        file.setLastModified(System.currentTimeMillis());
+
+        Map<HashCode, Entry> entries = Maps.newHashMap();
+        buffer.position(HEADER_SIZE);
+        byte[] key = new byte[KEY_SIZE];
+        while (buffer.remaining() >= KEY_SIZE + 4) {
+            buffer.get(key);
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                break; // Incomplete entry
+            }
+
+            HashCode hash = HashCode.fromBytes(key);
+            if (!entries.containsKey(hash)) {
+                entries.put(hash, new Entry(buffer.position(), length));
+            }
+
+            buffer.position(buffer.position() + length);
+        }
+
+        return new TransformedClassCache(file, maxSize, buffer, ImmutableMap.copyOf(entries));
+    }
+
+    /**
+     * Computes a fingerprint of the transformer configuration. The fingerprint
+     * changes if the tweaker class, the classes of the registered transformers
+     * or any of the configuration files are modified.
+     *
+     * @param tweaker The tweaker class
+     * @param transformers The registered transformers
+     * @param configurations The configuration files used by the transformers
+     * @return The fingerprint
+     * @throws IOException If an error occurs while reading the configurations
+     */
+    public static HashCode fingerprint(Class<?> tweaker, Iterable<IClassTransformer> transformers, Iterable<URL> configurations)
+            throws IOException {
+        Hasher hasher = HASH.newHasher();
+        hasher.putInt(VERSION);
+
+        putClass(hasher, tweaker);
+        for (IClassTransformer transformer : transformers) {
+            putClass(hasher, transformer.getClass());
+        }
+
+        for (URL configuration : configurations) {
+            hasher.putString(configuration.toString(), Charsets.UTF_8);
+            hasher.putBytes(Resources.toByteArray(configuration));
+        }
+
+        return hasher.hash();
+    }
+
+    private static void putClass(Hasher hasher, Class<?> type) throws IOException {
+        hasher.putString(type.getName(), Charsets.UTF_8);
+        URL classFile = type.getResource('/' + type.getName().replace('.', '/') + ".class");
+        if (classFile != null) {
+            hasher.putBytes(Resources.toByteArray(classFile));
+        }
+    }
+
+    private static final class Entry {
+
+        private final int offset;
+        private final int length;
+
+        private Entry(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        ByteBuffer slice(ByteBuffer buffer) {
+            ByteBuffer result = buffer.duplicate();
+            result.limit(this.offset + this.length).position(this.offset);
+            return result;
+        }
+
+        byte[] read(ByteBuffer buffer) {
+            byte[] result = new byte[this.length];
+            slice(buffer).get(result);
+            return result;
+        }
+
+    }
+
+}
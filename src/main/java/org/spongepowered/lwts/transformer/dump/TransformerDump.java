@@ -0,0 +1,313 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.transformer.dump;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.minecraft.launchwrapper.IClassTransformer;
+import net.minecraft.launchwrapper.LogWrapper;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+/**
+ * Writes the class bytes produced by each transformer for a selection of
+ * classes, to compare the output of the individual transformers.
+ *
+ * <p>For each selected class, the original bytes are written to
+ * {@code <class>/00-original.class} and the output of each transformer to
+ * {@code <class>/<stage>-<transformer>.class}. The files are written
+ * asynchronously by a separate thread. Files whose content has not changed
+ * since the last run are not written again.</p>
+ */
+public final class TransformerDump {
+
+    private static final Splitter GLOB_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+    private static final HashFunction HASH = Hashing.sha1();
+
+    private static final String ORIGINAL = "original";
+    private static final String EXTENSION = ".class";
+
+    private static final int CLASSES = 0;
+    private static final int MODIFIED = 1;
+    private static final int FIELDS = 2;
+
+    private final File dir;
+    private final ImmutableList<IClassTransformer> transformers;
+    private final Pattern pattern;
+
+    private final ExecutorService writer =
+            Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("LWTS dump writer").setDaemon(true).build());
+
+    private final AtomicLongArray counters;
+    private final ConcurrentLinkedQueue<Stage> stages = new ConcurrentLinkedQueue<Stage>();
+
+    /**
+     * Creates a new dump for the specified transformers.
+     *
+     * @param dir The directory to write the class files to
+     * @param transformers The transformers of the chain
+     * @param globs Comma separated list of globs for the class names to
+     *     select, where {@code *} matches any part of a name within a
+     *     package and {@code **} matches any part of a name
+     */
+    public TransformerDump(File dir, ImmutableList<IClassTransformer> transformers, String globs) {
+        this.dir = dir;
+        this.transformers = transformers;
+        this.pattern = compileGlobs(globs);
+        this.counters = new AtomicLongArray(transformers.size() * FIELDS);
+    }
+
+    /**
+     * Returns whether the stages of the specified class are dumped.
+     *
+     * @param transformedName The transformed class name
+     * @return {@code true} if the class is selected
+     */
+    public boolean isSelected(String transformedName) {
+        return this.pattern.matcher(transformedName).matches();
+    }
+
+    /**
+     * Records the original bytes of a class before it is passed to the
+     * transformers.
+     *
+     * @param transformedName The transformed class name
+     * @param bytes The original class bytes
+     */
+    public void recordOriginal(String transformedName, @Nullable byte[] bytes) {
+        if (bytes != null) {
+            write(transformedName, 0, ORIGINAL, bytes.clone());
+        }
+    }
+
+    /**
+     * Records the output of a single transformer.
+     *
+     * @param transformedName The transformed class name
+     * @param transformer The index of the transformer
+     * @param input The bytes passed to the transformer
+     * @param output The bytes returned by the transformer
+     */
+    public void recordStage(String transformedName, int transformer, @Nullable byte[] input, @Nullable byte[] output) {
+        boolean modified = input != output && !Arrays.equals(input, output);
+
+        int base = transformer * FIELDS;
+        this.counters.incrementAndGet(base + CLASSES);
+        if (modified) {
+            this.counters.incrementAndGet(base + MODIFIED);
+        }
+
+        this.stages.add(new Stage(transformedName, transformer, modified, size(input), size(output)));
+
+        if (output != null) {
+            write(transformedName, transformer + 1, this.transformers.get(transformer).getClass().getSimpleName(), output.clone());
+        }
+    }
+
+    private void write(String transformedName, int stage, String stageName, final byte[] bytes) {
+        File classDir = new File(this.dir, transformedName.replace('.', '/'));
+        final File file = new File(classDir, String.format("%02d-%s%s", stage, stageName, EXTENSION));
+
+        try {
+            this.writer.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        writeIfChanged(file, bytes);
+                    } catch (IOException e) {
+                        LogWrapper.warning("Failed to write %s: %s", file, e);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ignored) {
+            // Class loaded after the dump was finished
+        }
+    }
+
+    private static void writeIfChanged(File file, byte[] bytes) throws IOException {
+        if (file.isFile() && file.length() == bytes.length && HASH.hashBytes(bytes).equals(hash(file))) {
+            return;
+        }
+
+        Files.createParentDirs(file);
+        FileChannel channel = new FileOutputStream(file).getChannel();
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static HashCode hash(File file) throws IOException {
+        FileChannel channel = new FileInputStream(file).getChannel();
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Read the complete file
+            }
+            return HASH.hashBytes(buffer.array(), 0, buffer.position());
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Waits until all class files were written and writes the reports for
+     * the transformers ({@code transformers.csv}) and the individual stages
+     * ({@code stages.csv}) to the dump directory.
+     *
+     * @throws IOException If an error occurs while writing the reports
+     */
+    public void finish() throws IOException {
+        this.writer.shutdown();
+        try {
+            if (!this.writer.awaitTermination(1, TimeUnit.MINUTES)) {
+                LogWrapper.warning("Timed out while writing transformer dump");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!this.dir.isDirectory() && !this.dir.mkdirs()) {
+            throw new IOException("Failed to create dump directory " + this.dir);
+        }
+
+        StringBuilder builder = new StringBuilder("transformer,classes,modified\n");
+        for (int i = 0; i < this.transformers.size(); i++) {
+            builder.append(this.transformers.get(i).getClass().getName()).append(',')
+                    .append(this.counters.get(i * FIELDS + CLASSES)).append(',')
+                    .append(this.counters.get(i * FIELDS + MODIFIED)).append('\n');
+        }
+        Files.write(builder, new File(this.dir, "transformers.csv"), Charsets.UTF_8);
+
+        List<Stage> stages = Lists.newArrayList(this.stages);
+        Collections.sort(stages);
+
+        builder = new StringBuilder("class,stage,transformer,modified,bytes_in,bytes_out\n");
+        for (Stage stage : stages) {
+            builder.append(stage.className).append(',')
+                    .append(stage.transformer + 1).append(',')
+                    .append(this.transformers.get(stage.transformer).getClass().getName()).append(',')
+                    .append(stage.modified).append(',')
+                    .append(stage.bytesIn).append(',')
+                    .append(stage.bytesOut).append('\n');
+        }
+        Files.write(builder, new File(this.dir, "stages.csv"), Charsets.UTF_8);
+    }
+
+    private static int size(@Nullable byte[] bytes) {
+        return bytes != null ? bytes.length : 0;
+    }
+
+    private static Pattern compileGlobs(String globs) {
+        StringBuilder regex = new StringBuilder();
+        for (String glob : GLOB_SPLITTER.split(globs)) {
+            if (regex.length() > 0) {
+                regex.append('|');
+            }
+
+            int start = 0;
+            for (int i = 0; i < glob.length(); i++) {
+                char c = glob.charAt(i);
+                if (c != '*' && c != '?') {
+                    continue;
+                }
+
+                if (i > start) {
+                    regex.append(Pattern.quote(glob.substring(start, i)));
+                }
+
+                if (c == '?') {
+                    regex.append("[^.]");
+                } else if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                    regex.append(".*");
+                    i++;
+                } else {
+                    regex.append("[^.]*");
+                }
+                start = i + 1;
+            }
+
+            if (start < glob.length()) {
+                regex.append(Pattern.quote(glob.substring(start)));
+            }
+        }
+
+        return Pattern.compile(regex.toString());
+    }
+
+    private static final class Stage implements Comparable<Stage> {
+
+        private final String className;
+        private final int transformer;
+        private final boolean modified;
+        private final int bytesIn;
+        private final int bytesOut;
+
+        private Stage(String className, int transformer, boolean modified, int bytesIn, int bytesOut) {
+            this.className = className;
+            this.transformer = transformer;
+            this.modified = modified;
+            this.bytesIn = bytesIn;
+            this.bytesOut = bytesOut;
+        }
+
+        @Override
+        public int compareTo(Stage o) {
+            int result = this.className.compareTo(o.className);
+            return result != 0 ? result : this.transformer - o.transformer;
+        }
+
+    }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.transformer.profile;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import com.google.common.primitives.Longs;
+import net.minecraft.launchwrapper.IClassTransformer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects the time spent in each transformer and for each transformed
+ * class. The results can be written to CSV reports using
+ * {@link #write(File)}, together with the counters of all
+ * {@link InstrumentedTransformer}s.
+ */
+public final class TransformerProfiler {
+
+    private static final int TIME = 0;
+    private static final int COUNT = 1;
+    private static final int BYTES_IN = 2;
+    private static final int BYTES_OUT = 3;
+    private static final int FIELDS = 4;
+
+    private final ImmutableList<IClassTransformer> transformers;
+    private final AtomicLongArray counters;
+    private final ConcurrentLinkedQueue<ClassProfile> classes = new ConcurrentLinkedQueue<ClassProfile>();
+
+    public TransformerProfiler(ImmutableList<IClassTransformer> transformers) {
+        this.transformers = transformers;
+        this.counters = new AtomicLongArray(transformers.size() * FIELDS);
+    }
+
+    /**
+     * Records a single invocation of a transformer.
+     *
+     * @param transformer The index of the transformer
+     * @param time The time spent in the transformer in nanoseconds
+     * @param bytesIn The size of the class passed to the transformer
+     * @param bytesOut The size of the class returned by the transformer
+     */
+    public void recordTransformer(int transformer, long time, int bytesIn, int bytesOut) {
+        int base = transformer * FIELDS;
+        this.counters.addAndGet(base + TIME, time);
+        this.counters.incrementAndGet(base + COUNT);
+        this.counters.addAndGet(base + BYTES_IN, bytesIn);
+        this.counters.addAndGet(base + BYTES_OUT, bytesOut);
+    }
+
+    /**
+     * Records the transformation of a class by all transformers.
+     *
+     * @param name The transformed name of the class
+     * @param time The total time spent in the transformers in nanoseconds
+     * @param bytesIn The size of the original class
+     * @param bytesOut The size of the transformed class
+     */
+    public void recordClass(String name, long time, int bytesIn, int bytesOut) {
+        this.classes.add(new ClassProfile(name, time, bytesIn, bytesOut));
+    }
+
+    /**
+     * Writes the reports for the transformers ({@code transformers.csv}) and
+     * classes ({@code classes.csv}) to the specified directory. Both reports
+     * are sorted by the time spent, starting with the slowest entry. The
+     * counters of instrumented transformers are written to
+     * {@code counters.csv}.
+     *
+     * @param dir The report directory
+     * @throws IOException If an error occurs while writing the reports
+     */
+    public void write(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Failed to create report directory " + dir);
+        }
+
+        List<Integer> indexes = Lists.newArrayListWithCapacity(this.transformers.size());
+        for (int i = 0; i < this.transformers.size(); i++) {
+            indexes.add(i);
+        }
+
+        Collections.sort(indexes, new Comparator<Integer>() {
+
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return Longs.compare(get(o2, TIME), get(o1, TIME));
+            }
+        });
+
+        StringBuilder builder = new StringBuilder("transformer,time_ms,classes,bytes_in,bytes_out\n");
+        for (int i : indexes) {
+            builder.append(this.transformers.get(i).getClass().getName()).append(',')
+                    .append(toMillis(get(i, TIME))).append(',')
+                    .append(get(i, COUNT)).append(',')
+                    .append(get(i, BYTES_IN)).append(',')
+                    .append(get(i, BYTES_OUT)).append('\n');
+        }
+        Files.write(builder, new File(dir, "transformers.csv"), Charsets.UTF_8);
+
+        List<ClassProfile> classes = Lists.newArrayList(this.classes);
+        Collections.sort(classes);
+
+        builder = new StringBuilder("class,time_ms,bytes_in,bytes_out\n");
+        for (ClassProfile profile : classes) {
+            builder.append(profile.name).append(',')
+                    .append(toMillis(profile.time)).append(',')
+                    .append(profile.bytesIn).append(',')
+                    .append(profile.bytesOut).append('\n');
+        }
+        Files.write(builder, new File(dir, "classes.csv"), Charsets.UTF_8);
+
+        builder = new StringBuilder("transformer,counter,value\n");
+        for (IClassTransformer transformer : this.transformers) {
+            if (transformer instanceof InstrumentedTransformer) {
+                for (Map.Entry<String, Long> entry : ((InstrumentedTransformer) transformer).getCounters().entrySet()) {
+                    builder.append(transformer.getClass().getName()).append(',')
+                            .append(entry.getKey()).append(',')
+                            .append(entry.getValue()).append('\n');
+                }
+            }
+        }
+        Files.write(builder, new File(dir, "counters.csv"), Charsets.UTF_8);
+    }
+
+    private long get(int transformer, int field) {
+        return this.counters.get(transformer * FIELDS + field);
+    }
+
+    private static String toMillis(long nanos) {
+        return String.valueOf(nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private static final class ClassProfile implements Comparable<ClassProfile> {
+
+        private final String name;
+        private final long time;
+        private final int bytesIn;
+        private final int bytesOut;
+
+        private ClassProfile(String name, long time, int bytesIn, int bytesOut) {
+            this.name = name;
+            this.time = time;
+            this.bytesIn = bytesIn;
+            this.bytesOut = bytesOut;
+        }
+
+        @Override
+        public int compareTo(ClassProfile o) {
+            return Longs.compare(o.time, this.time);
+        }
+
+    }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.loader;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ClassPathIndexTest {
+
+    private static final Map<String, byte[]> CLASSES = ImmutableMap.of(
+            "test.First", TestJars.classBytes("test.First", 4096),
+            "test.Second", TestJars.classBytes("test.Second", 100000),
+            "test.nested.Third", TestJars.classBytes("test.nested.Third", 0));
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testStoredJar() throws IOException {
+        assertClasses(jar("stored.jar", CLASSES, false));
+    }
+
+    @Test
+    public void testDeflatedJar() throws IOException {
+        assertClasses(jar("deflated.jar", CLASSES, true));
+    }
+
+    @Test
+    public void testDirectory() throws IOException {
+        File dir = this.folder.newFolder("classes");
+        for (Map.Entry<String, byte[]> entry : CLASSES.entrySet()) {
+            File file = new File(dir, entry.getKey().replace('.', '/') + ".class");
+            Files.createParentDirs(file);
+            Files.write(entry.getValue(), file);
+        }
+
+        assertClasses(dir.toURI().toURL());
+    }
+
+    @Test
+    public void testPrecedence() throws IOException {
+        byte[] first = TestJars.classBytes("first", 100);
+        byte[] second = TestJars.classBytes("second", 100);
+
+        ClassPathIndex index = ClassPathIndex.build(ImmutableList.of(
+                jar("first.jar", ImmutableMap.of("test.First", first), true),
+                jar("second.jar", ImmutableMap.of("test.First", second, "test.Second", second), false)));
+        try {
+            assertEquals(2, index.getIndexedSources());
+            assertArrayEquals(first, index.read("test.First"));
+            assertArrayEquals(second, index.read("test.Second"));
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testUnsupportedSource() throws IOException {
+        // Sources after the first source that cannot be indexed are left to the class loader
+        ClassPathIndex index = ClassPathIndex.build(ImmutableList.of(
+                jar("first.jar", ImmutableMap.of("test.First", CLASSES.get("test.First")), true),
+                new URL("http://localhost/second.jar"),
+                jar("third.jar", ImmutableMap.of("test.Second", CLASSES.get("test.Second")), true)));
+        try {
+            assertEquals(1, index.getIndexedSources());
+            assertEquals(ImmutableSet.of("test.First"), index.getClassNames());
+            assertFalse(index.contains("test.Second"));
+            assertNull(index.read("test.Second"));
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testReadInterrupted() throws IOException {
+        ClassPathIndex index = ClassPathIndex.build(ImmutableList.of(jar("test.jar", CLASSES, true)));
+        try {
+            Thread.currentThread().interrupt();
+            try {
+                assertArrayEquals(CLASSES.get("test.First"), index.read("test.First"));
+            } finally {
+                assertTrue(Thread.interrupted());
+            }
+
+            // Reading the jar must not fail after a reading thread was interrupted
+            assertArrayEquals(CLASSES.get("test.Second"), index.read("test.Second"));
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testConcurrentRead() throws Exception {
+        final ClassPathIndex index = ClassPathIndex.build(ImmutableList.of(jar("test.jar", CLASSES, true)));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = Lists.newArrayList();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws IOException {
+                        for (int j = 0; j < 100; j++) {
+                            for (Map.Entry<String, byte[]> entry : CLASSES.entrySet()) {
+                                assertArrayEquals(entry.getValue(), index.read(entry.getKey()));
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            index.close();
+        }
+    }
+
+    private URL jar(String name, Map<String, byte[]> classes, boolean deflated) throws IOException {
+        File file = this.folder.newFile(name);
+        TestJars.writeJar(file, classes, deflated);
+        return file.toURI().toURL();
+    }
+
+    private static void assertClasses(URL source) throws IOException {
+        ClassPathIndex index = ClassPathIndex.build(ImmutableList.of(source));
+        try {
+            assertEquals(1, index.getIndexedSources());
+            assertEquals(CLASSES.keySet(), index.getClassNames());
+            for (Map.Entry<String, byte[]> entry : CLASSES.entrySet()) {
+                assertTrue(index.contains(entry.getKey()));
+                assertArrayEquals(entry.getValue(), index.read(entry.getKey()));
+            }
+            assertNull(index.read("test.Missing"));
+        } finally {
+            index.close();
+        }
+    }
+
+}
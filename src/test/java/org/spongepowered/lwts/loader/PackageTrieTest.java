@@ -0,0 +1,86 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.loader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PackageTrieTest {
+
+    @Test
+    public void testPackagePrefix() {
+        PackageTrie trie = new PackageTrie();
+        trie.add("com.example.");
+
+        assertTrue(trie.matches("com.example.Test"));
+        assertTrue(trie.matches("com.example.sub.Test"));
+        assertFalse(trie.matches("com.examples.Test"));
+        assertFalse(trie.matches("com.Test"));
+        assertFalse(trie.matches("org.example.Test"));
+    }
+
+    @Test
+    public void testPartialPrefix() {
+        // Same as String.startsWith, prefixes do not need to end at a package boundary
+        PackageTrie trie = new PackageTrie();
+        trie.add("com.exam");
+        trie.add("org.example.Test");
+
+        assertTrue(trie.matches("com.example.Test"));
+        assertTrue(trie.matches("com.exam.Test"));
+        assertTrue(trie.matches("com.examples.Test"));
+        assertFalse(trie.matches("com.ex.Test"));
+
+        assertTrue(trie.matches("org.example.Test"));
+        assertTrue(trie.matches("org.example.Test$Inner"));
+        assertTrue(trie.matches("org.example.TestCase"));
+        assertFalse(trie.matches("org.example.Other"));
+    }
+
+    @Test
+    public void testCoveredPrefix() {
+        PackageTrie trie = new PackageTrie();
+        assertTrue(trie.add("com.example."));
+        assertFalse(trie.add("com.example."));
+        assertFalse(trie.add("com.example.sub."));
+        assertFalse(trie.add("com.example.Test"));
+        assertTrue(trie.add("com.other"));
+        assertEquals(2, trie.size());
+    }
+
+    @Test
+    public void testEmptyPrefix() {
+        PackageTrie trie = new PackageTrie();
+        assertFalse(trie.matches("Test"));
+
+        trie.add("");
+        assertTrue(trie.matches("Test"));
+        assertTrue(trie.matches("com.example.Test"));
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.loader;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableMap;
+import net.minecraft.launchwrapper.LaunchClassLoader;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+
+public class ResourceCacheTest {
+
+    private static final String CLASS_NAME = "test.Target";
+    private static final byte[] CLASS_BYTES = TestJars.classBytes(CLASS_NAME, 1024);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File jar;
+    private LaunchClassLoader loader;
+
+    @Before
+    public void setUp() throws IOException {
+        this.jar = this.folder.newFile("test.jar");
+        TestJars.writeJar(this.jar, ImmutableMap.of(CLASS_NAME, CLASS_BYTES), true);
+        this.loader = new LaunchClassLoader(new URL[] {this.jar.toURI().toURL()});
+    }
+
+    @Test
+    public void testInstall() {
+        ResourceCache cache = ResourceCache.install(this.loader);
+        assertSame(cache, ResourceCache.get(this.loader));
+        assertSame(cache, ResourceCache.install(this.loader));
+    }
+
+    @Test
+    public void testReadFromIndex() throws IOException {
+        ClassPathIndex.install(this.loader);
+        ResourceCache cache = ResourceCache.get(this.loader);
+
+        assertTrue(cache.containsKey(CLASS_NAME));
+        assertArrayEquals(CLASS_BYTES, cache.get(CLASS_NAME));
+        // Classes read from the index are not cached
+        assertEquals(0, cache.getCachedBytes());
+    }
+
+    @Test
+    public void testReadTwiceFromIndex() throws IOException {
+        ClassPathIndex.install(this.loader);
+
+        // LaunchClassLoader.findClass requests the bytes of classes in jars with a manifest twice
+        byte[] bytes = this.loader.getClassBytes(CLASS_NAME);
+        assertSame(bytes, this.loader.getClassBytes(CLASS_NAME));
+
+        // Read again once the class was requested the second time
+        byte[] next = this.loader.getClassBytes(CLASS_NAME);
+        assertArrayEquals(CLASS_BYTES, next);
+        assertNotSame(bytes, next);
+    }
+
+    @Test
+    public void testReadRemoved() throws IOException {
+        // Classes removed from the cache are read again using the class loader
+        ResourceCache cache = ResourceCache.install(this.loader);
+        assertArrayEquals(CLASS_BYTES, cache.get(CLASS_NAME));
+        assertNull(cache.get("test.Missing"));
+    }
+
+    @Test
+    public void testReadFailure() throws IOException {
+        ClassPathIndex.install(this.loader);
+        ResourceCache cache = ResourceCache.get(this.loader);
+
+        RandomAccessFile file = new RandomAccessFile(this.jar, "rw");
+        try {
+            file.setLength(16);
+        } finally {
+            file.close();
+        }
+
+        // Handled by the class loader like a missing class
+        assertNull(cache.get(CLASS_NAME));
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.loader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes jars with class entries for the class path index tests.
+ */
+final class TestJars {
+
+    private TestJars() {
+    }
+
+    /**
+     * Returns pseudo-random class bytes for the specified class name. The
+     * bytes can be compressed, but are not a valid class.
+     *
+     * @param name The class name
+     * @param size The size of the class
+     * @return The class bytes
+     */
+    static byte[] classBytes(String name, int size) {
+        Random random = new Random(name.hashCode());
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) random.nextInt(16);
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes a jar containing the specified classes.
+     *
+     * @param file The jar file
+     * @param classes The class bytes by class name
+     * @param deflated Whether the classes are compressed or stored
+     * @throws IOException If an error occurs while writing the jar
+     */
+    static void writeJar(File file, Map<String, byte[]> classes, boolean deflated) throws IOException {
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+                byte[] bytes = entry.getValue();
+                ZipEntry zipEntry = new ZipEntry(entry.getKey().replace('.', '/') + ".class");
+                if (!deflated) {
+                    CRC32 crc = new CRC32();
+                    crc.update(bytes);
+                    zipEntry.setMethod(ZipEntry.STORED);
+                    zipEntry.setSize(bytes.length);
+                    zipEntry.setCompressedSize(bytes.length);
+                    zipEntry.setCrc(crc.getValue());
+                }
+
+                out.putNextEntry(zipEntry);
+                out.write(bytes);
+                out.closeEntry();
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.runner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FixtureCacheTest {
+
+    @After
+    public void tearDown() {
+        FixtureCache.invalidateAll();
+    }
+
+    @Test
+    public void testShared() throws Exception {
+        Counter counter = new Counter();
+        Object first = FixtureCache.get(FixtureCacheTest.class, "fixture", counter);
+        assertSame(first, FixtureCache.get(FixtureCacheTest.class, "fixture", counter));
+        assertEquals(1, counter.created.get());
+
+        // Fixtures are not shared across class loaders
+        Class<?> other = createClass(createLoader());
+        assertNotSame(first, FixtureCache.get(other, "fixture", counter));
+        assertEquals(2, counter.created.get());
+    }
+
+    @Test
+    public void testInvalidateLoader() throws Exception {
+        ClassLoader loader = createLoader();
+        Fixture fixture = FixtureCache.get(createClass(loader), "fixture", new Callable<Fixture>() {
+
+            @Override
+            public Fixture call() {
+                return new Fixture();
+            }
+        });
+        Fixture shared = FixtureCache.get(FixtureCacheTest.class, "fixture", new Callable<Fixture>() {
+
+            @Override
+            public Fixture call() {
+                return new Fixture();
+            }
+        });
+
+        FixtureCache.invalidate(loader);
+        assertTrue(fixture.closed);
+        assertSame(shared, FixtureCache.get(FixtureCacheTest.class, "fixture", new Counter()));
+    }
+
+    @Test
+    public void testLoaderReleased() throws Exception {
+        ClassLoader loader = createLoader();
+        FixtureCache.get(createClass(loader), "fixture", new Counter());
+
+        // The class loader is no longer retained once its fixtures were removed
+        FixtureCache.invalidate(loader);
+        WeakReference<ClassLoader> reference = new WeakReference<ClassLoader>(loader);
+        loader = null;
+        for (int i = 0; i < 20 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(reference.get());
+    }
+
+    private static ClassLoader createLoader() {
+        return new URLClassLoader(new URL[0], FixtureCacheTest.class.getClassLoader());
+    }
+
+    private static Class<?> createClass(ClassLoader loader) {
+        return Proxy.getProxyClass(loader, Runnable.class);
+    }
+
+    private static final class Counter implements Callable<Object> {
+
+        final AtomicInteger created = new AtomicInteger();
+
+        @Override
+        public Object call() {
+            return this.created.incrementAndGet();
+        }
+
+    }
+
+    private static final class Fixture implements Closeable {
+
+        volatile boolean closed;
+
+        @Override
+        public void close() {
+            this.closed = true;
+        }
+
+    }
+
+}
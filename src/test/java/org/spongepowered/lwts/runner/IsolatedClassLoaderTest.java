@@ -0,0 +1,110 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.runner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import net.minecraft.launchwrapper.LaunchClassLoader;
+import org.junit.Before;
+import org.junit.Test;
+import org.spongepowered.lwts.loader.PackageTrie;
+
+import java.net.URL;
+
+public class IsolatedClassLoaderTest {
+
+    private static final String ISOLATED = Isolated.class.getName();
+    private static final String SHARED = Shared.class.getName();
+
+    private LaunchClassLoader parent;
+    private PackageTrie isolated;
+
+    @Before
+    public void setUp() {
+        URL testClasses = IsolatedClassLoaderTest.class.getProtectionDomain().getCodeSource().getLocation();
+        this.parent = new LaunchClassLoader(new URL[] {testClasses});
+        this.isolated = new PackageTrie();
+        this.isolated.add(ISOLATED);
+    }
+
+    @Test
+    public void testIsolated() throws ClassNotFoundException {
+        SharedClassBytes shared = new SharedClassBytes(this.parent, Long.MAX_VALUE);
+        IsolatedClassLoader first = new IsolatedClassLoader(this.parent, shared, this.isolated);
+        IsolatedClassLoader second = new IsolatedClassLoader(this.parent, shared, this.isolated);
+
+        // Isolated classes are defined by each class loader
+        Class<?> isolatedClass = first.loadClass(ISOLATED);
+        assertSame(first, isolatedClass.getClassLoader());
+        assertNotSame(isolatedClass, second.loadClass(ISOLATED));
+        assertSame(isolatedClass, first.loadClass(ISOLATED));
+
+        // All other classes are shared
+        Class<?> sharedClass = first.loadClass(SHARED);
+        assertSame(this.parent, sharedClass.getClassLoader());
+        assertSame(sharedClass, second.loadClass(SHARED));
+
+        // Classes excluded from the Launchwrapper class loader are never isolated
+        PackageTrie all = new PackageTrie();
+        all.add("");
+        IsolatedClassLoader loader = new IsolatedClassLoader(this.parent, shared, all);
+        assertSame(String.class, loader.loadClass("java.lang.String"));
+    }
+
+    @Test
+    public void testRetainedBytes() throws ClassNotFoundException {
+        SharedClassBytes shared = new SharedClassBytes(this.parent, Long.MAX_VALUE);
+        new IsolatedClassLoader(this.parent, shared, this.isolated).loadClass(ISOLATED);
+
+        long retained = shared.getRetainedBytes();
+        assertTrue(retained > 0);
+        assertEquals(retained, shared.clear());
+        assertEquals(0, shared.getRetainedBytes());
+
+        // Released classes are transformed again
+        new IsolatedClassLoader(this.parent, shared, this.isolated).loadClass(ISOLATED);
+        assertEquals(retained, shared.getRetainedBytes());
+    }
+
+    @Test
+    public void testMaxSize() throws ClassNotFoundException {
+        SharedClassBytes shared = new SharedClassBytes(this.parent, 0);
+
+        // Classes exceeding the maximum size are still loaded, but not retained
+        Class<?> isolatedClass = new IsolatedClassLoader(this.parent, shared, this.isolated).loadClass(ISOLATED);
+        assertEquals(ISOLATED, isolatedClass.getName());
+        assertEquals(0, shared.getRetainedBytes());
+    }
+
+    static final class Isolated {
+    }
+
+    static final class Shared {
+    }
+
+}
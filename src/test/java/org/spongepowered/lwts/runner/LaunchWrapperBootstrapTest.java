@@ -0,0 +1,85 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.runner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assume.assumeTrue;
+import static org.spongepowered.lwts.runner.LaunchWrapperTestRunner.TWEAKER_PROPERTY;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.junit.runners.model.InitializationError;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class LaunchWrapperBootstrapTest {
+
+    private static final int THREADS = 8;
+
+    @Test
+    public void testConcurrentFailure() throws Exception {
+        // Fails because no tweaker is configured
+        assumeTrue(System.getProperty(TWEAKER_PROPERTY) == null);
+
+        final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        List<Callable<Throwable>> tasks = Lists.newArrayList();
+        for (int i = 0; i < THREADS; i++) {
+            tasks.add(new Callable<Throwable>() {
+
+                @Override
+                public Throwable call() throws Exception {
+                    barrier.await();
+                    try {
+                        LaunchWrapperBootstrap.initialize();
+                        return null;
+                    } catch (InitializationError e) {
+                        assertEquals(1, e.getCauses().size());
+                        return e.getCauses().get(0);
+                    }
+                }
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            // The bootstrap only runs once, its failure is reported to all callers
+            List<Future<Throwable>> results = executor.invokeAll(tasks);
+            Throwable failure = results.get(0).get();
+            assertEquals("Missing system property " + TWEAKER_PROPERTY, failure.getMessage());
+            for (Future<Throwable> result : results) {
+                assertSame(failure, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.runner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.spongepowered.lwts.runner.LaunchWrapperTestRunner.PARALLEL_PROPERTY;
+import static org.spongepowered.lwts.runner.LaunchWrapperTestRunner.PARALLEL_THREADS_PROPERTY;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.internal.builders.AllDefaultPossibilitiesBuilder;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.junit.runners.Suite;
+import org.junit.runners.model.InitializationError;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+public class LaunchWrapperSuiteTest {
+
+    // Only set while the test classes are run by this test
+    @Nullable private static volatile CyclicBarrier barrier;
+    private static final Set<String> threads = Collections.synchronizedSet(Sets.<String>newHashSet());
+
+    @After
+    public void tearDown() {
+        System.clearProperty(PARALLEL_PROPERTY);
+        System.clearProperty(PARALLEL_THREADS_PROPERTY);
+        barrier = null;
+        threads.clear();
+    }
+
+    @Test
+    public void testSequential() throws InitializationError {
+        barrier = new CyclicBarrier(1);
+        Result result = new JUnitCore().run(new LaunchWrapperSuite(Classes.class, new AllDefaultPossibilitiesBuilder(true)));
+        assertTrue(result.wasSuccessful());
+        assertEquals(2, result.getRunCount());
+        assertEquals(ImmutableSet.of(Thread.currentThread().getName()), threads);
+    }
+
+    @Test
+    public void testParallel() throws InitializationError {
+        System.setProperty(PARALLEL_PROPERTY, "true");
+        System.setProperty(PARALLEL_THREADS_PROPERTY, "2");
+
+        // Both test classes wait for each other, which only succeeds if they run concurrently
+        barrier = new CyclicBarrier(2);
+        Result result = new JUnitCore().run(new LaunchWrapperSuite(Classes.class, new AllDefaultPossibilitiesBuilder(true)));
+        assertTrue(result.getFailures().toString(), result.wasSuccessful());
+        assertEquals(2, result.getRunCount());
+        assertEquals(ImmutableSet.of("LWTS test class #0", "LWTS test class #1"), threads);
+    }
+
+    private static void await() throws Exception {
+        CyclicBarrier barrier = LaunchWrapperSuiteTest.barrier;
+        assumeTrue(barrier != null);
+
+        threads.add(Thread.currentThread().getName());
+        barrier.await(10, TimeUnit.SECONDS);
+    }
+
+    @Suite.SuiteClasses({First.class, Second.class})
+    public static final class Classes {
+    }
+
+    @RunWith(JUnit4.class)
+    public static final class First {
+
+        @Test
+        public void test() throws Exception {
+            await();
+        }
+
+    }
+
+    @RunWith(JUnit4.class)
+    public static final class Second {
+
+        @Test
+        public void test() throws Exception {
+            await();
+        }
+
+    }
+
+}
@@ -0,0 +1,204 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.runner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runner.notification.StoppedByUserException;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class OrderedParallelSchedulerTest {
+
+    @Test
+    public void testOrder() {
+        RunNotifier notifier = new RunNotifier();
+        Recorder recorder = new Recorder();
+        notifier.addListener(recorder);
+
+        // Later children finish first
+        OrderedParallelScheduler scheduler = new OrderedParallelScheduler(3, "test #%d");
+        scheduler.schedule(new Child(notifier, "first", 200, false));
+        scheduler.schedule(new Child(notifier, "second", 100, true));
+        scheduler.schedule(new Child(notifier, "third", 0, false));
+        scheduler.finished();
+
+        assertEquals(ImmutableList.of(
+                "started first", "finished first",
+                "started second", "failure second", "finished second",
+                "started third", "finished third"), recorder.events);
+    }
+
+    @Test
+    public void testTiming() {
+        RunNotifier notifier = new RunNotifier();
+        Recorder recorder = new Recorder();
+        notifier.addListener(recorder);
+
+        OrderedParallelScheduler scheduler = new OrderedParallelScheduler(2, "test #%d");
+        scheduler.schedule(new Child(notifier, "first", 200, false));
+        scheduler.schedule(new Child(notifier, "second", 0, false));
+        scheduler.finished();
+
+        // The first child reports its notifications while it is running
+        assertTrue(recorder.durations.get("first") >= TimeUnit.MILLISECONDS.toNanos(150));
+    }
+
+    @Test
+    public void testStop() throws InterruptedException {
+        final RunNotifier notifier = new RunNotifier();
+        Recorder recorder = new Recorder();
+        notifier.addListener(recorder);
+
+        final CountDownLatch stopped = new CountDownLatch(1);
+        final List<String> stoppedChildren = Collections.synchronizedList(Lists.<String>newArrayList());
+
+        OrderedParallelScheduler scheduler = new OrderedParallelScheduler(2, "test #%d");
+        scheduler.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                RunNotifier child = OrderedParallelScheduler.getNotifier(notifier);
+                Description description = Description.createTestDescription(OrderedParallelSchedulerTest.class, "first");
+                child.fireTestStarted(description);
+                notifier.pleaseStop();
+                stopped.countDown();
+                child.fireTestFinished(description);
+            }
+        });
+        scheduler.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    stopped.await();
+                    // Not next in order, so the notifications are still recorded
+                    OrderedParallelScheduler.getNotifier(notifier).fireTestStarted(
+                            Description.createTestDescription(OrderedParallelSchedulerTest.class, "second"));
+                } catch (StoppedByUserException e) {
+                    stoppedChildren.add("second");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        scheduler.finished();
+
+        assertEquals(ImmutableList.of("second"), stoppedChildren);
+        assertEquals(ImmutableList.of("started first", "finished first"), recorder.events);
+    }
+
+    @Test
+    public void testChildStop() {
+        final RunNotifier notifier = new RunNotifier();
+        OrderedParallelScheduler scheduler = new OrderedParallelScheduler(1, "test #%d");
+        scheduler.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                OrderedParallelScheduler.getNotifier(notifier).pleaseStop();
+            }
+        });
+        scheduler.finished();
+
+        try {
+            notifier.fireTestStarted(Description.createTestDescription(OrderedParallelSchedulerTest.class, "test"));
+            fail("Expected StoppedByUserException");
+        } catch (StoppedByUserException expected) {
+            // Passed on to the parent
+        }
+    }
+
+    private static final class Child implements Runnable {
+
+        private final RunNotifier notifier;
+        private final Description description;
+        private final long sleep;
+        private final boolean fail;
+
+        Child(RunNotifier notifier, String name, long sleep, boolean fail) {
+            this.notifier = notifier;
+            this.description = Description.createTestDescription(OrderedParallelSchedulerTest.class, name);
+            this.sleep = sleep;
+            this.fail = fail;
+        }
+
+        @Override
+        public void run() {
+            RunNotifier notifier = OrderedParallelScheduler.getNotifier(this.notifier);
+            notifier.fireTestStarted(this.description);
+            try {
+                Thread.sleep(this.sleep);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (this.fail) {
+                notifier.fireTestFailure(new Failure(this.description, new AssertionError()));
+            }
+            notifier.fireTestFinished(this.description);
+        }
+
+    }
+
+    private static final class Recorder extends RunListener {
+
+        final List<String> events = Collections.synchronizedList(Lists.<String>newArrayList());
+        final Map<String, Long> durations = new ConcurrentHashMap<String, Long>();
+        private final Map<String, Long> started = new ConcurrentHashMap<String, Long>();
+
+        @Override
+        public void testStarted(Description description) {
+            this.events.add("started " + description.getMethodName());
+            this.started.put(description.getMethodName(), System.nanoTime());
+        }
+
+        @Override
+        public void testFinished(Description description) {
+            this.events.add("finished " + description.getMethodName());
+            this.durations.put(description.getMethodName(), System.nanoTime() - this.started.get(description.getMethodName()));
+        }
+
+        @Override
+        public void testFailure(Failure failure) {
+            this.events.add("failure " + failure.getDescription().getMethodName());
+        }
+
+    }
+
+}
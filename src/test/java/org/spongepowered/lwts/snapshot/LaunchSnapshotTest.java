@@ -0,0 +1,104 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashCode;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+public class LaunchSnapshotTest {
+
+    private static final String TWEAKER = "test.Tweaker";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+    private File other;
+    private List<File> classPath;
+
+    @Before
+    public void setUp() throws IOException {
+        this.root = this.folder.newFolder("root");
+        this.other = this.folder.newFolder("other");
+        this.classPath = ImmutableList.of(this.root, this.other);
+
+        write(new File(this.root, "a/A.class"), "a", 1000);
+        write(new File(this.other, "b/B.class"), "b", 1000);
+    }
+
+    @Test
+    public void testModifiedFile() throws IOException {
+        HashCode fingerprint = LaunchSnapshot.fingerprint(TWEAKER, this.classPath);
+        assertEquals(fingerprint, LaunchSnapshot.fingerprint(TWEAKER, this.classPath));
+
+        write(new File(this.other, "b/B.class"), "b2", 2000);
+        assertNotEquals(fingerprint, LaunchSnapshot.fingerprint(TWEAKER, this.classPath));
+    }
+
+    @Test
+    public void testRoots() throws IOException {
+        Set<File> roots = ImmutableSet.of(this.root.getAbsoluteFile());
+        HashCode fingerprint = LaunchSnapshot.fingerprint(TWEAKER, this.classPath, roots);
+
+        // Files in other directories are not checked
+        write(new File(this.other, "b/B.class"), "b2", 2000);
+        assertEquals(fingerprint, LaunchSnapshot.fingerprint(TWEAKER, this.classPath, roots));
+
+        write(new File(this.root, "a/A.class"), "a2", 2000);
+        assertNotEquals(fingerprint, LaunchSnapshot.fingerprint(TWEAKER, this.classPath, roots));
+    }
+
+    @Test
+    public void testRootsAddedFile() throws IOException {
+        Set<File> roots = ImmutableSet.of(this.root.getAbsoluteFile());
+        HashCode fingerprint = LaunchSnapshot.fingerprint(TWEAKER, this.classPath, roots);
+
+        write(new File(this.other, "C.class"), "c", 1000);
+        this.other.setLastModified(2000);
+        assertNotEquals(fingerprint, LaunchSnapshot.fingerprint(TWEAKER, this.classPath, roots));
+    }
+
+    private static void write(File file, String content, long lastModified) throws IOException {
+        Files.createParentDirs(file);
+        Files.write(content, file, Charsets.UTF_8);
+        file.setLastModified(lastModified);
+    }
+
+}
@@ -0,0 +1,226 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.transformer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Registers access transformers and transforms classes from many threads at
+ * the same time and compares the results with a single-threaded run.
+ */
+public class AccessTransformerConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int CONFIGS = 16;
+    private static final int CLASSES = 200;
+    private static final int MEMBERS = 10;
+    private static final int ROUNDS = 20;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<URL> configs = Lists.newArrayList();
+    private final Map<String, byte[]> classes = Maps.newLinkedHashMap();
+
+    private ExecutorService executor;
+
+    @Before
+    public void setup() throws IOException {
+        this.executor = Executors.newFixedThreadPool(THREADS);
+
+        Map<String, Integer> fields = Maps.newLinkedHashMap();
+        Map<String, Integer> methods = Maps.newLinkedHashMap();
+        for (int i = 0; i < MEMBERS; i++) {
+            fields.put("f" + i, ACC_PRIVATE);
+            methods.put("m" + i, ACC_PRIVATE);
+        }
+
+        for (int i = 0; i < CLASSES; i++) {
+            String className = "test.Target" + i;
+            this.classes.put(className, TestClasses.generate(className, 0, fields, methods));
+        }
+
+        // Each configuration modifies a different subset of the classes, so the registration order does not matter
+        for (int i = 0; i < CONFIGS; i++) {
+            List<String> lines = Lists.newArrayList();
+            for (int j = i; j < CLASSES; j += CONFIGS) {
+                String className = "test.Target" + j;
+                lines.add("public " + className);
+                lines.add("public-f " + className + " f" + (i % MEMBERS));
+                lines.add("protected " + className + " m" + (i % MEMBERS) + TestClasses.METHOD_DESC);
+                if (i % 4 == 0) {
+                    lines.add("public " + className + " *()");
+                }
+            }
+            this.configs.add(TestClasses.writeConfig(this.folder.getRoot(), "at" + i + ".cfg", lines));
+        }
+    }
+
+    @After
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentRegister() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            final AccessTransformer transformer = new AccessTransformer();
+            final CountDownLatch start = new CountDownLatch(1);
+
+            List<Future<?>> futures = Lists.newArrayList();
+            for (final URL config : this.configs) {
+                futures.add(this.executor.submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws Exception {
+                        start.await();
+                        transformer.register(config);
+                        return null;
+                    }
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            transformer.freeze();
+            assertEquals(CLASSES, transformer.getTargets().getClassNames().size());
+            assertResults(transform(transformer), transform(createTransformer()));
+        }
+    }
+
+    @Test
+    public void testConcurrentTransformWithoutFreeze() throws Exception {
+        Map<String, byte[]> expected = transform(createTransformer());
+        for (int round = 0; round < ROUNDS; round++) {
+            // The rules are built lazily by the first thread that transforms a class
+            assertResults(transformConcurrently(createTransformer()), expected);
+        }
+    }
+
+    @Test
+    public void testConcurrentTransformAfterFreeze() throws Exception {
+        AccessTransformer transformer = createTransformer();
+        transformer.freeze();
+
+        Map<String, byte[]> expected = transform(createTransformer());
+        for (int round = 0; round < ROUNDS; round++) {
+            assertResults(transformConcurrently(transformer), expected);
+        }
+    }
+
+    @Test
+    public void testRegisterAfterFreeze() throws Exception {
+        AccessTransformer transformer = createTransformer();
+        transformer.transform("test.Target0", "test.Target0", this.classes.get("test.Target0"));
+
+        try {
+            transformer.register(this.configs.get(0));
+            fail("Registered access transformer after it was frozen");
+        } catch (IllegalStateException ignored) {
+        }
+    }
+
+    private AccessTransformer createTransformer() throws IOException {
+        AccessTransformer transformer = new AccessTransformer();
+        for (URL config : this.configs) {
+            transformer.register(config);
+        }
+        return transformer;
+    }
+
+    private Map<String, byte[]> transform(AccessTransformer transformer) {
+        Map<String, byte[]> result = Maps.newLinkedHashMap();
+        for (Map.Entry<String, byte[]> entry : this.classes.entrySet()) {
+            result.put(entry.getKey(), transformer.transform(entry.getKey(), entry.getKey(), entry.getValue()));
+        }
+        return result;
+    }
+
+    private Map<String, byte[]> transformConcurrently(final AccessTransformer transformer) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        List<String> classNames = ImmutableList.copyOf(this.classes.keySet());
+
+        // Every class is transformed by all threads, half of them in reverse order
+        List<Future<Map<String, byte[]>>> futures = Lists.newArrayList();
+        for (int i = 0; i < THREADS; i++) {
+            final List<String> order = i % 2 == 0 ? classNames : Lists.reverse(classNames);
+            futures.add(this.executor.submit(new Callable<Map<String, byte[]>>() {
+
+                @Override
+                public Map<String, byte[]> call() throws Exception {
+                    start.await();
+
+                    Map<String, byte[]> result = Maps.newHashMap();
+                    for (String className : order) {
+                        result.put(className, transformer.transform(className, className, AccessTransformerConcurrencyTest.this.classes.get(className)));
+                    }
+                    return result;
+                }
+            }));
+        }
+
+        start.countDown();
+
+        Map<String, byte[]> result = futures.get(0).get();
+        for (Future<Map<String, byte[]>> future : futures) {
+            assertResults(future.get(), result);
+        }
+        return result;
+    }
+
+    private static void assertResults(Map<String, byte[]> actual, Map<String, byte[]> expected) {
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            assertEquals(entry.getKey(), TestClasses.readAccess(entry.getValue()), TestClasses.readAccess(actual.get(entry.getKey())));
+            assertArrayEquals(entry.getKey(), entry.getValue(), actual.get(entry.getKey()));
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.transformer;
+
+import static org.junit.Assert.assertEquals;
+import static org.objectweb.asm.Opcodes.ACC_FINAL;
+import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
+import static org.objectweb.asm.Opcodes.ACC_PROTECTED;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares the access flags produced by the {@link AccessTransformer} with
+ * the original implementation, which applied each line of the configuration
+ * to the matching members one after another.
+ */
+public class AccessTransformerEquivalenceTest {
+
+    private static final int CONFIGS = 3000;
+    private static final String CLASS_NAME = "test.Target";
+
+    private static final int[] ACCESS = {ACC_PUBLIC, ACC_PROTECTED, ACC_PRIVATE, 0};
+    private static final String[] MODIFIERS = {"public", "protected", "private", "default"};
+    private static final String[] FINAL = {"", "+f", "-f"};
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRandomConfigurations() throws IOException {
+        Random random = new Random(0);
+        for (int i = 0; i < CONFIGS; i++) {
+            int fieldCount = 1 + random.nextInt(4);
+            int methodCount = 1 + random.nextInt(4);
+
+            Map<String, Integer> fields = Maps.newLinkedHashMap();
+            for (int j = 0; j < fieldCount; j++) {
+                fields.put("f" + j, randomAccess(random));
+            }
+            Map<String, Integer> methods = Maps.newLinkedHashMap();
+            for (int j = 0; j < methodCount; j++) {
+                methods.put("m" + j, randomAccess(random));
+            }
+            byte[] bytes = TestClasses.generate(CLASS_NAME, randomAccess(random), fields, methods);
+
+            List<String> lines = Lists.newArrayList();
+            for (int j = 1 + random.nextInt(8); j > 0; j--) {
+                String line = MODIFIERS[random.nextInt(MODIFIERS.length)] + FINAL[random.nextInt(FINAL.length)] + ' ' + CLASS_NAME;
+                switch (random.nextInt(5)) {
+                    case 0:
+                        break;
+                    case 1:
+                        line += " *";
+                        break;
+                    case 2:
+                        line += " *()";
+                        break;
+                    case 3:
+                        line += " f" + random.nextInt(fieldCount);
+                        break;
+                    default:
+                        line += " m" + random.nextInt(methodCount) + TestClasses.METHOD_DESC;
+                }
+                lines.add(line);
+            }
+
+            AccessTransformer transformer = new AccessTransformer();
+            transformer.register(TestClasses.writeConfig(this.folder.getRoot(), "test.cfg", lines));
+
+            assertEquals(lines.toString(), TestClasses.readAccess(transformSequentially(lines, bytes)),
+                    TestClasses.readAccess(transformer.transform(CLASS_NAME, CLASS_NAME, bytes)));
+        }
+    }
+
+    private static int randomAccess(Random random) {
+        return ACCESS[random.nextInt(ACCESS.length)] | (random.nextBoolean() ? ACC_FINAL : 0);
+    }
+
+    /**
+     * Applies each line to all matching members, like the original
+     * implementation.
+     */
+    private static byte[] transformSequentially(List<String> lines, byte[] bytes) {
+        ClassNode classNode = new ClassNode();
+        new ClassReader(bytes).accept(classNode, 0);
+
+        for (String line : lines) {
+            AccessTransformer.Modifier m = AccessTransformer.parseModifier(line);
+            if (m.isClass) {
+                classNode.access = transform(m, classNode.access);
+            } else if (m.desc == null) {
+                for (FieldNode fieldNode : classNode.fields) {
+                    if (m.wildcard || fieldNode.name.equals(m.name)) {
+                        fieldNode.access = transform(m, fieldNode.access);
+                    }
+                }
+            } else {
+                for (MethodNode methodNode : classNode.methods) {
+                    if (m.wildcard || (methodNode.name.equals(m.name) && methodNode.desc.equals(m.desc))) {
+                        methodNode.access = transform(m, methodNode.access);
+                    }
+                }
+            }
+        }
+
+        ClassWriter writer = new ClassWriter(0);
+        classNode.accept(writer);
+        return writer.toByteArray();
+    }
+
+    private static int transform(AccessTransformer.Modifier m, int access) {
+        // Copied from the original implementation, including its handling of the visibility flags
+        int result = access & ~7;
+        switch (access & 4) {
+            case 0:
+                if (m.targetAccess != ACC_PRIVATE) {
+                    result |= m.targetAccess;
+                }
+                break;
+            case ACC_PROTECTED:
+                result |= m.targetAccess != 0 && m.targetAccess != ACC_PRIVATE ? m.targetAccess : ACC_PROTECTED;
+                break;
+            default:
+                throw new AssertionError();
+        }
+
+        if (m.markFinal != null) {
+            if (m.markFinal) {
+                result |= ACC_FINAL;
+            } else {
+                result &= ~ACC_FINAL;
+            }
+        }
+        return result;
+    }
+
+}
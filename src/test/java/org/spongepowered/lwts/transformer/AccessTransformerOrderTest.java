@@ -0,0 +1,122 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.transformer;
+
+import static org.junit.Assert.assertEquals;
+import static org.objectweb.asm.Opcodes.ACC_FINAL;
+import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
+import static org.objectweb.asm.Opcodes.ACC_PROTECTED;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Checks that the modifiers of a class are applied in the order of the
+ * configuration, no matter if they target a specific member or all members.
+ */
+public class AccessTransformerOrderTest {
+
+    private static final String CLASS_NAME = "test.Target";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testMethodWildcardAfterMember() throws IOException {
+        Map<String, Integer> access = transform(
+                "private+f test.Target m1()V",
+                "public+f test.Target *()");
+        assertEquals(ACC_PUBLIC | ACC_FINAL, (int) access.get("m1()V"));
+        assertEquals(ACC_PUBLIC | ACC_FINAL, (int) access.get("m2()V"));
+    }
+
+    @Test
+    public void testMethodWildcardBeforeMember() throws IOException {
+        Map<String, Integer> access = transform(
+                "public+f test.Target *()",
+                "private+f test.Target m1()V");
+        // Making a public method private only removes the public flag
+        assertEquals(ACC_FINAL, (int) access.get("m1()V"));
+        assertEquals(ACC_PUBLIC | ACC_FINAL, (int) access.get("m2()V"));
+    }
+
+    @Test
+    public void testMethodWildcardBetweenMembers() throws IOException {
+        Map<String, Integer> access = transform(
+                "protected test.Target m1()V",
+                "public-f test.Target *()",
+                "protected+f test.Target m1()V");
+        assertEquals(ACC_PROTECTED | ACC_FINAL, (int) access.get("m1()V"));
+        assertEquals(ACC_PUBLIC, (int) access.get("m2()V"));
+    }
+
+    @Test
+    public void testFieldWildcardAfterMember() throws IOException {
+        Map<String, Integer> access = transform(
+                "protected-f test.Target f1",
+                "public test.Target *");
+        assertEquals(ACC_PUBLIC, (int) access.get("f1"));
+        assertEquals(ACC_PUBLIC | ACC_FINAL, (int) access.get("f2"));
+    }
+
+    @Test
+    public void testFieldWildcardBeforeMember() throws IOException {
+        Map<String, Integer> access = transform(
+                "public test.Target *",
+                "protected-f test.Target f1");
+        assertEquals(ACC_PROTECTED, (int) access.get("f1"));
+        assertEquals(ACC_PUBLIC | ACC_FINAL, (int) access.get("f2"));
+    }
+
+    @Test
+    public void testOrderAcrossConfigurations() throws IOException {
+        AccessTransformer transformer = new AccessTransformer();
+        transformer.register(TestClasses.writeConfig(this.folder.getRoot(), "first.cfg", ImmutableList.of("private+f test.Target m1()V")));
+        transformer.register(TestClasses.writeConfig(this.folder.getRoot(), "second.cfg", ImmutableList.of("public+f test.Target *()")));
+
+        Map<String, Integer> access = TestClasses.readAccess(transformer.transform(CLASS_NAME, CLASS_NAME, generate()));
+        assertEquals(ACC_PUBLIC | ACC_FINAL, (int) access.get("m1()V"));
+    }
+
+    private Map<String, Integer> transform(String... lines) throws IOException {
+        AccessTransformer transformer = new AccessTransformer();
+        transformer.register(TestClasses.writeConfig(this.folder.getRoot(), "test.cfg", ImmutableList.copyOf(lines)));
+        return TestClasses.readAccess(transformer.transform(CLASS_NAME, CLASS_NAME, generate()));
+    }
+
+    private static byte[] generate() {
+        return TestClasses.generate(CLASS_NAME, ACC_PUBLIC,
+                ImmutableMap.of("f1", ACC_PRIVATE | ACC_FINAL, "f2", ACC_PRIVATE | ACC_FINAL),
+                ImmutableMap.of("m1", ACC_PRIVATE, "m2", ACC_PRIVATE));
+    }
+
+}
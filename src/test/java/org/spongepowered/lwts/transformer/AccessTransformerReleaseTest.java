@@ -0,0 +1,118 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.transformer;
+
+import static org.junit.Assert.assertEquals;
+import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+/**
+ * Checks that released access transformer modifiers are rebuilt when needed.
+ */
+public class AccessTransformerReleaseTest {
+
+    private static final String FIRST = "test.First";
+    private static final String SECOND = "test.Second";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private AccessTransformer transformer;
+
+    @Before
+    public void setUp() throws IOException {
+        this.transformer = new AccessTransformer();
+        this.transformer.register(TestClasses.writeConfig(this.folder.getRoot(), "test.cfg", ImmutableList.of(
+                "public " + FIRST + " f",
+                "public " + SECOND + " f")));
+        this.transformer.freeze();
+    }
+
+    @Test
+    public void testReleaseTransformed() {
+        assertTransformed(FIRST);
+        assertEquals(1, this.transformer.releaseTransformedRules());
+        assertEquals(0, this.transformer.releaseTransformedRules());
+
+        // Rebuilt from the configuration
+        assertTransformed(FIRST);
+        assertEquals(2, (long) this.transformer.getCounters().get("rules.released"));
+    }
+
+    @Test
+    public void testReleaseOnTransform() {
+        assertEquals(0, this.transformer.releaseTransformedRules());
+
+        // Released as soon as the class was transformed
+        assertTransformed(SECOND);
+        assertEquals(1, (long) this.transformer.getCounters().get("rules.released"));
+        assertTransformed(SECOND);
+        assertEquals(2, (long) this.transformer.getCounters().get("rules.released"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReleaseSnapshot() {
+        AccessTransformer restored = new AccessTransformer();
+        restored.restore(this.transformer.snapshot());
+
+        assertTransformed(restored, FIRST);
+        assertEquals(1, restored.releaseTransformedRules());
+
+        // Modifiers restored from a snapshot cannot be rebuilt
+        restored.transform(FIRST, FIRST, generate(FIRST));
+    }
+
+    @Test
+    public void testReleaseSnapshotUntransformed() {
+        AccessTransformer restored = new AccessTransformer();
+        restored.restore(this.transformer.snapshot());
+        assertEquals(0, restored.releaseTransformedRules());
+
+        assertTransformed(restored, SECOND);
+    }
+
+    private void assertTransformed(String className) {
+        assertTransformed(this.transformer, className);
+    }
+
+    private static void assertTransformed(AccessTransformer transformer, String className) {
+        byte[] bytes = transformer.transform(className, className, generate(className));
+        assertEquals(ACC_PUBLIC, (int) TestClasses.readAccess(bytes).get("f"));
+    }
+
+    private static byte[] generate(String className) {
+        return TestClasses.generate(className, ACC_PUBLIC, ImmutableMap.of("f", ACC_PRIVATE), ImmutableMap.<String, Integer>of());
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.transformer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.objectweb.asm.Opcodes.ACC_FINAL;
+import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
+import static org.objectweb.asm.Opcodes.ACC_PROTECTED;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Resources;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * Checks that compiled access transformers apply the same modifiers as
+ * their text configuration.
+ */
+public class CompiledAccessTransformerTest {
+
+    private static final String CONFIG = "META-INF/lwts_test_at.cfg";
+    // Compiled by the compileTestAccessTransformer task of the build
+    private static final String COMPILED = "META-INF/lwts_test_at.atc";
+
+    private static final String[] CLASS_NAMES = {"test.compiled.Target", "test.compiled.Other", "test.compiled.Unchanged"};
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCompiled() throws IOException {
+        File file = this.folder.newFile("test.atc");
+        AccessTransformerCompiler compiler = new AccessTransformerCompiler();
+        compiler.add(Resources.getResource(CONFIG));
+        compiler.write(file);
+
+        assertSameModifiers(file.toURI().toURL());
+    }
+
+    @Test
+    public void testCompiledByBuild() throws IOException {
+        URL compiled = CompiledAccessTransformerTest.class.getClassLoader().getResource(COMPILED);
+        assertNotNull("Missing compiled access transformer " + COMPILED, compiled);
+        assertSameModifiers(compiled);
+    }
+
+    private static void assertSameModifiers(URL compiled) throws IOException {
+        AccessTransformer expected = new AccessTransformer();
+        expected.register(CONFIG);
+        AccessTransformer actual = new AccessTransformer();
+        actual.register(compiled);
+
+        for (String className : CLASS_NAMES) {
+            Map<String, Integer> access = TestClasses.readAccess(transform(expected, className));
+            assertEquals(className, access, TestClasses.readAccess(transform(actual, className)));
+        }
+
+        // Sanity check that the configuration was applied
+        Map<String, Integer> access = TestClasses.readAccess(transform(actual, CLASS_NAMES[0]));
+        assertEquals(ACC_PROTECTED, (int) access.get("f1"));
+        assertEquals(ACC_PUBLIC | ACC_FINAL, (int) access.get("m1" + TestClasses.METHOD_DESC));
+    }
+
+    private static byte[] transform(AccessTransformer transformer, String className) {
+        return transformer.transform(className, className, generate(className));
+    }
+
+    private static byte[] generate(String className) {
+        return TestClasses.generate(className, 0,
+                ImmutableMap.of("f1", ACC_PRIVATE | ACC_FINAL, "f2", ACC_PUBLIC),
+                ImmutableMap.of("m1", ACC_PRIVATE, "m2", ACC_PRIVATE | ACC_FINAL));
+    }
+
+}
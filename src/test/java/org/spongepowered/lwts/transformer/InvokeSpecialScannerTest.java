@@ -0,0 +1,117 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.transformer;
+
+import static org.junit.Assert.assertEquals;
+import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_STATIC;
+import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.INVOKEVIRTUAL;
+import static org.objectweb.asm.Opcodes.POP2;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.V1_6;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+
+public class InvokeSpecialScannerTest {
+
+    private static final String OWNER = "test/Scanned";
+    private static final String TARGET = "target()V";
+
+    @Test
+    public void testFindCallers() {
+        ClassReader reader = new ClassReader(generate(true));
+        assertEquals(ImmutableSet.of("caller()V"), InvokeSpecialScanner.findCallers(reader, ImmutableSet.of(TARGET)));
+    }
+
+    @Test
+    public void testNoReference() {
+        // Skipped using the constant pool, the class does not reference the method
+        ClassReader reader = new ClassReader(generate(false));
+        assertEquals(ImmutableSet.of(), InvokeSpecialScanner.findCallers(reader, ImmutableSet.of(TARGET)));
+
+        reader = new ClassReader(generate(true));
+        assertEquals(ImmutableSet.of(), InvokeSpecialScanner.findCallers(reader, ImmutableSet.of("missing()V")));
+    }
+
+    @Test
+    public void testOtherOwner() {
+        // The constructor calls Object.<init> using INVOKESPECIAL, which is not a method of the class
+        ClassReader reader = new ClassReader(generate(true));
+        assertEquals(ImmutableSet.of(), InvokeSpecialScanner.findCallers(reader, ImmutableSet.of("<init>()V")));
+    }
+
+    private static byte[] generate(boolean call) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(V1_6, ACC_PUBLIC, OWNER, null, "java/lang/Object", null);
+        writer.visitField(ACC_PUBLIC | ACC_STATIC, "value", "I", null, 42).visitEnd();
+
+        MethodVisitor mv = writer.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = writer.visitMethod(ACC_PRIVATE, "target", "()V", null, null);
+        mv.visitCode();
+        // Long constants take two constant pool slots
+        mv.visitLdcInsn(Long.MAX_VALUE);
+        mv.visitInsn(POP2);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        if (call) {
+            mv = writer.visitMethod(ACC_PUBLIC, "caller", "()V", null, null);
+            mv.visitCode();
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitMethodInsn(INVOKESPECIAL, OWNER, "target", "()V", false);
+            mv.visitInsn(RETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+
+            // References the method, but not using INVOKESPECIAL
+            mv = writer.visitMethod(ACC_PUBLIC, "virtualCaller", "()V", null, null);
+            mv.visitCode();
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitMethodInsn(INVOKEVIRTUAL, OWNER, "target", "()V", false);
+            mv.visitInsn(RETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.transformer;
+
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.ASM5;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.V1_6;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates classes with the specified access flags and reads the access
+ * flags of transformed classes.
+ */
+final class TestClasses {
+
+    static final String CLASS = "class";
+    static final String METHOD_DESC = "()V";
+
+    private TestClasses() {
+    }
+
+    /**
+     * Generates a class with the specified fields and methods. Each method
+     * calls the next method using {@code INVOKESPECIAL}.
+     *
+     * @param className The class name
+     * @param classAccess The access flags of the class
+     * @param fields The access flags of the fields, by name
+     * @param methods The access flags of the methods (with descriptor
+     *     {@value #METHOD_DESC}), by name
+     * @return The class bytes
+     */
+    static byte[] generate(String className, int classAccess, Map<String, Integer> fields, Map<String, Integer> methods) {
+        String internalName = className.replace('.', '/');
+
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(V1_6, classAccess, internalName, null, "java/lang/Object", null);
+        for (Map.Entry<String, Integer> field : fields.entrySet()) {
+            writer.visitField(field.getValue(), field.getKey(), "I", null, null).visitEnd();
+        }
+
+        String[] names = methods.keySet().toArray(new String[methods.size()]);
+        for (int i = 0; i < names.length; i++) {
+            MethodVisitor mv = writer.visitMethod(methods.get(names[i]), names[i], METHOD_DESC, null, null);
+            mv.visitCode();
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitMethodInsn(INVOKESPECIAL, internalName, names[(i + 1) % names.length], METHOD_DESC, false);
+            mv.visitInsn(RETURN);
+            mv.visitMaxs(1, 1);
+            mv.visitEnd();
+        }
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    /**
+     * Generates a public class without any members.
+     *
+     * @param className The class name
+     * @return The class bytes
+     */
+    static byte[] generate(String className) {
+        return generate(className, ACC_PUBLIC, Maps.<String, Integer>newHashMap(), Maps.<String, Integer>newHashMap());
+    }
+
+    /**
+     * Reads the access flags of the class ({@value #CLASS}), its fields
+     * (by name) and its methods (by name and descriptor).
+     *
+     * @param bytes The class bytes
+     * @return The access flags
+     */
+    static Map<String, Integer> readAccess(byte[] bytes) {
+        final Map<String, Integer> result = Maps.newLinkedHashMap();
+        new ClassReader(bytes).accept(new ClassVisitor(ASM5) {
+
+            @Override
+            public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                result.put(CLASS, access);
+            }
+
+            @Override
+            public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+                result.put(name, access);
+                return null;
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+                result.put(name + desc, access);
+                return null;
+            }
+        }, 0);
+        return result;
+    }
+
+    /**
+     * Writes an access transformer configuration to a file in the specified
+     * directory.
+     *
+     * @param dir The directory
+     * @param name The file name
+     * @param lines The lines of the configuration
+     * @return The URL of the configuration
+     * @throws IOException If an error occurs while writing the file
+     */
+    static URL writeConfig(File dir, String name, List<String> lines) throws IOException {
+        File file = new File(dir, name);
+        Files.write(Joiner.on('\n').join(lines), file, Charsets.UTF_8);
+        return file.toURI().toURL();
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.transformer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
+import static org.objectweb.asm.Opcodes.ACC_PROTECTED;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Checks that text access transformer configurations are indexed by class
+ * and that the lines of each class are only parsed when requested.
+ */
+public class TextSourceTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testParse() throws IOException {
+        AccessTransformer.TextSource source = parse(
+                "# Comment",
+                "",
+                "  public test.First  # Trailing comment",
+                "protected-f test/Second f",
+                "private+f test.First m(I)V\r",
+                "public test.Second *()");
+
+        assertEquals(ImmutableList.of("test.First", "test.Second"), ImmutableList.copyOf(source.getClassNames()));
+
+        List<AccessTransformer.Modifier> first = getModifiers(source, "test.First");
+        assertEquals(2, first.size());
+        assertTrue(first.get(0).isClass);
+        assertEquals(ACC_PUBLIC, first.get(0).targetAccess);
+        assertNull(first.get(0).markFinal);
+
+        assertFalse(first.get(1).isClass);
+        assertEquals("m", first.get(1).name);
+        assertEquals("(I)V", first.get(1).desc);
+        assertEquals(ACC_PRIVATE, first.get(1).targetAccess);
+        assertEquals(Boolean.TRUE, first.get(1).markFinal);
+
+        List<AccessTransformer.Modifier> second = getModifiers(source, "test.Second");
+        assertEquals(2, second.size());
+        assertEquals("f", second.get(0).name);
+        assertNull(second.get(0).desc);
+        assertEquals(ACC_PROTECTED, second.get(0).targetAccess);
+        assertEquals(Boolean.FALSE, second.get(0).markFinal);
+        assertTrue(second.get(1).wildcard);
+        assertEquals("()", second.get(1).desc);
+
+        assertTrue(getModifiers(source, "test.Missing").isEmpty());
+    }
+
+    @Test
+    public void testParseLazily() throws IOException {
+        // The invalid line is only parsed once the modifiers of its class are requested
+        AccessTransformer.TextSource source = parse(
+                "public test.Broken (I)V",
+                "public test.Valid f");
+
+        assertEquals(1, getModifiers(source, "test.Valid").size());
+        try {
+            getModifiers(source, "test.Broken");
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Invalid member name
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyParts() throws IOException {
+        parse("public test.Valid f",
+                "public test.Invalid f g");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingClass() throws IOException {
+        parse("public");
+    }
+
+    private AccessTransformer.TextSource parse(String... lines) throws IOException {
+        return AccessTransformer.TextSource.parse(TestClasses.writeConfig(this.folder.getRoot(), "test.cfg", ImmutableList.copyOf(lines)));
+    }
+
+    private static List<AccessTransformer.Modifier> getModifiers(AccessTransformer.TextSource source, String className) {
+        List<AccessTransformer.Modifier> result = Lists.newArrayList();
+        source.getModifiers(className, result);
+        return result;
+    }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.transformer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import net.minecraft.launchwrapper.IClassTransformer;
+import net.minecraft.launchwrapper.LaunchClassLoader;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.spongepowered.lwts.transformer.cache.TransformedClassCache;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+
+public class TransformerChainTest {
+
+    private static final byte[] CLASS_BYTES = {1, 2, 3};
+
+    private static final List<String> calls = Lists.newArrayList();
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private LaunchClassLoader loader;
+
+    @Before
+    public void setUp() {
+        calls.clear();
+        this.loader = new LaunchClassLoader(new URL[0]);
+        this.loader.addClassLoaderExclusion(TransformerChainTest.class.getName());
+    }
+
+    @Test
+    public void testClassTargets() {
+        TransformerChain chain = install(ImmutableMap.of(ClassTargeted.class.getName(), TransformerTargets.classes("test.a.Target")),
+                ClassTargeted.class, Untargeted.class);
+
+        chain.transform("test.a.Target", "test.a.Target", CLASS_BYTES);
+        assertEquals(ImmutableList.of("ClassTargeted:test.a.Target", "Untargeted:test.a.Target"), calls);
+
+        // Transformers without targets are run for all classes
+        calls.clear();
+        chain.transform("test.a.Other", "test.a.Other", CLASS_BYTES);
+        assertEquals(ImmutableList.of("Untargeted:test.a.Other"), calls);
+    }
+
+    @Test
+    public void testPackageTargets() {
+        TransformerChain chain = install(ImmutableMap.of(ClassTargeted.class.getName(), TransformerTargets.classes("test.b.Target")),
+                PackageTargeted.class, ClassTargeted.class);
+
+        chain.transform("test.a.sub.Target", "test.a.sub.Target", CLASS_BYTES);
+        chain.transform("test.b.Target", "test.b.Target", CLASS_BYTES);
+        assertEquals(ImmutableList.of("PackageTargeted:test.a.sub.Target", "ClassTargeted:test.b.Target"), calls);
+
+        // Classes that are not targeted are returned without running any transformer
+        calls.clear();
+        assertSame(CLASS_BYTES, chain.transform("test.c.Target", "test.c.Target", CLASS_BYTES));
+        assertEquals(ImmutableList.of(), calls);
+    }
+
+    @Test
+    public void testDeclaredTargets() {
+        // Declared targets take precedence over the targets of the transformer
+        TransformerChain chain = install(ImmutableMap.of(PackageTargeted.class.getName(), TransformerTargets.classes("test.c.Target")),
+                PackageTargeted.class);
+
+        chain.transform("test.a.Target", "test.a.Target", CLASS_BYTES);
+        chain.transform("test.c.Target", "test.c.Target", CLASS_BYTES);
+        assertEquals(ImmutableList.of("PackageTargeted:test.c.Target"), calls);
+    }
+
+    @Test
+    public void testCache() throws IOException {
+        TransformerChain chain = install(ImmutableMap.of(ClassTargeted.class.getName(), TransformerTargets.classes("test.a.Target")),
+                ClassTargeted.class, Untargeted.class);
+        TransformedClassCache cache = TransformedClassCache.open(this.folder.newFolder("cache"), HashCode.fromInt(1));
+        chain.setCache(cache);
+
+        // Unchanged classes are cached as well
+        assertSame(CLASS_BYTES, chain.transform("test.a.Target", "test.a.Target", CLASS_BYTES));
+        assertSame(CLASS_BYTES, chain.transform("test.a.Target", "test.a.Target", CLASS_BYTES));
+        assertEquals(ImmutableList.of("ClassTargeted:test.a.Target", "Untargeted:test.a.Target"), calls);
+        assertEquals(1, cache.getHits());
+
+        // Classes that are not targeted by any transformer are not cached
+        calls.clear();
+        chain.transform("test.a.Other", "test.a.Other", CLASS_BYTES);
+        chain.transform("test.a.Other", "test.a.Other", CLASS_BYTES);
+        assertEquals(ImmutableList.of("Untargeted:test.a.Other", "Untargeted:test.a.Other"), calls);
+        assertEquals(1, cache.getMisses());
+    }
+
+    private TransformerChain install(Map<String, TransformerTargets> declaredTargets, Class<?>... transformers) {
+        for (Class<?> transformer : transformers) {
+            this.loader.registerTransformer(transformer.getName());
+        }
+        return TransformerChain.install(this.loader, declaredTargets);
+    }
+
+    private static void record(IClassTransformer transformer, String transformedName) {
+        synchronized (calls) {
+            calls.add(transformer.getClass().getSimpleName() + ':' + transformedName);
+        }
+    }
+
+    public static final class ClassTargeted implements IClassTransformer {
+
+        @Override
+        public byte[] transform(String name, String transformedName, byte[] bytes) {
+            record(this, transformedName);
+            return bytes;
+        }
+
+    }
+
+    public static final class Untargeted implements IClassTransformer {
+
+        @Override
+        public byte[] transform(String name, String transformedName, byte[] bytes) {
+            record(this, transformedName);
+            return bytes;
+        }
+
+    }
+
+    public static final class PackageTargeted implements TargetedTransformer {
+
+        @Override
+        public TransformerTargets getTargets() {
+            return TransformerTargets.packages("test.a.");
+        }
+
+        @Override
+        public byte[] transform(String name, String transformedName, byte[] bytes) {
+            record(this, transformedName);
+            return bytes;
+        }
+
+    }
+
+}
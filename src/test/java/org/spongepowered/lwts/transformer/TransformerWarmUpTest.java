@@ -0,0 +1,126 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.transformer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import net.minecraft.launchwrapper.IClassNameTransformer;
+import net.minecraft.launchwrapper.IClassTransformer;
+import net.minecraft.launchwrapper.LaunchClassLoader;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+
+public class TransformerWarmUpTest {
+
+    private static final byte[] CLASS_BYTES = {1, 2, 3};
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private LaunchClassLoader loader;
+    private RenameTransformer transformer;
+    private TransformerChain chain;
+
+    @Before
+    public void setUp() throws IOException {
+        File dir = this.folder.newFolder("classes");
+        File file = new File(dir, "obf/Target.class");
+        Files.createParentDirs(file);
+        Files.write(CLASS_BYTES, file);
+
+        this.loader = new LaunchClassLoader(new URL[] {dir.toURI().toURL()});
+        this.loader.addClassLoaderExclusion(RenameTransformer.class.getName());
+        this.loader.registerTransformer(RenameTransformer.class.getName());
+        this.transformer = (RenameTransformer) this.loader.getTransformers().get(0);
+        this.chain = TransformerChain.install(this.loader);
+    }
+
+    @Test
+    public void testFindClasses() throws IOException {
+        // The class path contains the untransformed names
+        TransformerWarmUp warmUp = new TransformerWarmUp(this.loader, this.chain);
+        assertEquals(ImmutableSet.of("test.Target"), warmUp.findClasses(ImmutableList.of("test.")));
+        assertEquals(ImmutableSet.of(), warmUp.findClasses(ImmutableList.of("obf.")));
+    }
+
+    @Test
+    public void testPrepared() {
+        new TransformerWarmUp(this.loader, this.chain).run(ImmutableList.of("test.Target"), 2);
+        assertEquals(ImmutableList.of("obf.Target:test.Target"), this.transformer.transformed);
+
+        // Loading the class returns the prepared result
+        assertArrayEquals(new byte[] {1, 2, 3, 4}, this.chain.transform("obf.Target", "test.Target", CLASS_BYTES.clone()));
+        assertEquals(1, this.transformer.transformed.size());
+        assertEquals(0, this.chain.clearPrepared());
+    }
+
+    @Test
+    public void testClearPrepared() {
+        new TransformerWarmUp(this.loader, this.chain).run(ImmutableList.of("test.Target"), 2);
+        assertEquals(1, this.chain.clearPrepared());
+
+        // Transformed again when the class is loaded after the prepared classes were released
+        assertArrayEquals(new byte[] {1, 2, 3, 4}, this.chain.transform("obf.Target", "test.Target", CLASS_BYTES.clone()));
+        assertEquals(2, this.transformer.transformed.size());
+    }
+
+    public static final class RenameTransformer implements IClassTransformer, IClassNameTransformer {
+
+        final List<String> transformed = Lists.newArrayList();
+
+        @Override
+        public synchronized byte[] transform(String name, String transformedName, byte[] bytes) {
+            this.transformed.add(name + ":" + transformedName);
+            byte[] result = new byte[bytes.length + 1];
+            System.arraycopy(bytes, 0, result, 0, bytes.length);
+            result[bytes.length] = (byte) result.length;
+            return result;
+        }
+
+        @Override
+        public String remapClassName(String name) {
+            return name.startsWith("obf.") ? "test." + name.substring(4) : name;
+        }
+
+        @Override
+        public String unmapClassName(String name) {
+            return name.startsWith("test.") ? "obf." + name.substring(5) : name;
+        }
+
+    }
+
+}
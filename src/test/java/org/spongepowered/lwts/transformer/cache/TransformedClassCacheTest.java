@@ -0,0 +1,230 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.transformer.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.ARETURN;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.V1_6;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import net.minecraft.launchwrapper.IClassTransformer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.TimeUnit;
+
+public class TransformedClassCacheTest {
+
+    private static final HashCode FINGERPRINT = HashCode.fromInt(1);
+
+    private static final String TRANSFORMER_NAME = "test.Transformer";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        this.dir = this.folder.newFolder("cache");
+    }
+
+    @Test
+    public void testSaveAndOpen() throws IOException {
+        TransformedClassCache cache = TransformedClassCache.open(this.dir, FINGERPRINT);
+        HashCode key = cache.key("a", "a", new byte[] {1});
+        assertNull(cache.get(key));
+
+        cache.put(key, new byte[] {1, 2, 3});
+        assertArrayEquals(new byte[] {1, 2, 3}, cache.get(key));
+        cache.save();
+
+        cache = TransformedClassCache.open(this.dir, FINGERPRINT);
+        assertArrayEquals(new byte[] {1, 2, 3}, cache.get(key));
+        assertEquals(1, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    public void testMaxSize() throws IOException {
+        long maxSize = 4096;
+        TransformedClassCache cache = TransformedClassCache.open(this.dir, FINGERPRINT, maxSize);
+        for (int i = 0; i < 100; i++) {
+            cache.put(key(i), new byte[100]);
+        }
+        cache.save();
+        assertTrue(getCacheFile().length() <= maxSize);
+
+        // Only the used entries are kept when the file is replaced
+        cache = TransformedClassCache.open(this.dir, FINGERPRINT, maxSize);
+        int used = -1;
+        for (int i = 0; i < 100; i++) {
+            if (cache.get(key(i)) != null) {
+                used = i;
+                break;
+            }
+        }
+        assertTrue(used >= 0);
+
+        for (int i = 100; i < 200; i++) {
+            cache.put(key(i), new byte[100]);
+        }
+        cache.save();
+        assertTrue(getCacheFile().length() <= maxSize);
+
+        cache = TransformedClassCache.open(this.dir, FINGERPRINT, maxSize);
+        assertArrayEquals(new byte[100], cache.get(key(used)));
+        for (int i = 0; i < 100; i++) {
+            if (i != used) {
+                assertNull(cache.get(key(i)));
+            }
+        }
+        assertFalse(this.dir.list().length > 1);
+    }
+
+    @Test
+    public void testOversizedFileIgnored() throws IOException {
+        TransformedClassCache cache = TransformedClassCache.open(this.dir, FINGERPRINT);
+        cache.put(key(0), new byte[1024]);
+        cache.save();
+
+        cache = TransformedClassCache.open(this.dir, FINGERPRINT, 512);
+        assertNull(cache.get(key(0)));
+        cache.put(key(1), new byte[16]);
+        cache.save();
+        assertTrue(getCacheFile().length() <= 512);
+
+        cache = TransformedClassCache.open(this.dir, FINGERPRINT, 512);
+        assertArrayEquals(new byte[16], cache.get(key(1)));
+    }
+
+    @Test
+    public void testUnchanged() throws IOException {
+        TransformedClassCache cache = TransformedClassCache.open(this.dir, FINGERPRINT);
+        cache.putUnchanged(key(0));
+        assertEquals(0, cache.get(key(0)).length);
+        cache.save();
+
+        // Only the key is written
+        assertEquals(8 + 20 + 4, getCacheFile().length());
+        cache = TransformedClassCache.open(this.dir, FINGERPRINT);
+        assertEquals(0, cache.get(key(0)).length);
+    }
+
+    @Test
+    public void testOtherFingerprints() throws IOException {
+        HashCode other = HashCode.fromInt(2);
+        HashCode stale = HashCode.fromInt(3);
+
+        TransformedClassCache cache = TransformedClassCache.open(this.dir, other);
+        cache.put(key(0), new byte[16]);
+        cache.save();
+        cache = TransformedClassCache.open(this.dir, stale);
+        cache.put(key(0), new byte[16]);
+        cache.save();
+
+        File staleFile = new File(this.dir, stale + ".cache");
+        assertTrue(staleFile.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(8)));
+
+        // Caches of other fingerprints may still be used by other test tasks
+        TransformedClassCache.open(this.dir, FINGERPRINT);
+        assertTrue(new File(this.dir, other + ".cache").isFile());
+        assertFalse(staleFile.exists());
+    }
+
+    @Test
+    public void testFingerprintTransformerClass() throws Exception {
+        HashCode first = fingerprint(createTransformer(this.folder.newFolder("first"), "first"));
+        assertEquals(first, fingerprint(createTransformer(this.folder.newFolder("same"), "first")));
+
+        // Same class name, but different class bytes
+        assertNotEquals(first, fingerprint(createTransformer(this.folder.newFolder("second"), "second")));
+    }
+
+    private File getCacheFile() {
+        return new File(this.dir, FINGERPRINT + ".cache");
+    }
+
+    private static HashCode key(int i) {
+        return Hashing.sha1().hashInt(i);
+    }
+
+    private static HashCode fingerprint(IClassTransformer transformer) throws IOException {
+        return TransformedClassCache.fingerprint(TransformedClassCacheTest.class, ImmutableList.of(transformer), ImmutableList.<URL>of());
+    }
+
+    private static IClassTransformer createTransformer(File dir, String source) throws Exception {
+        String internalName = TRANSFORMER_NAME.replace('.', '/');
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_6, ACC_PUBLIC, internalName, null, "java/lang/Object",
+                new String[] {Type.getInternalName(IClassTransformer.class)});
+        cw.visitSource(source, null);
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = cw.visitMethod(ACC_PUBLIC, "transform", "(Ljava/lang/String;Ljava/lang/String;[B)[B", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 3);
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+
+        File file = new File(dir, internalName + ".class");
+        Files.createParentDirs(file);
+        Files.write(cw.toByteArray(), file);
+
+        ClassLoader loader = new URLClassLoader(new URL[] {dir.toURI().toURL()}, TransformedClassCacheTest.class.getClassLoader());
+        return (IClassTransformer) loader.loadClass(TRANSFORMER_NAME).newInstance();
+    }
+
+}
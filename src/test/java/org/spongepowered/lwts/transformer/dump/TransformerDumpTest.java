@@ -0,0 +1,133 @@
+/*
+ * This file is part of LaunchWrapperTestSuite, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.lwts.transformer.dump;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import net.minecraft.launchwrapper.IClassTransformer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+public class TransformerDumpTest {
+
+    private static final String CLASS_NAME = "com.example.Target";
+    private static final byte[] ORIGINAL = {1, 2, 3};
+    private static final byte[] MODIFIED = {1, 2, 3, 4};
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File dir;
+    private ImmutableList<IClassTransformer> transformers;
+
+    @Before
+    public void setUp() throws IOException {
+        this.dir = this.folder.newFolder("dump");
+        this.transformers = ImmutableList.<IClassTransformer>of(new Modifying(), new Unchanged());
+    }
+
+    @Test
+    public void testSelection() {
+        TransformerDump dump = new TransformerDump(this.dir, this.transformers, "com.example.*, org.**.Test?");
+        assertTrue(dump.isSelected("com.example.Target"));
+        assertFalse(dump.isSelected("com.example.sub.Target"));
+        assertTrue(dump.isSelected("org.example.sub.Test1"));
+        assertFalse(dump.isSelected("org.example.sub.Test12"));
+        assertFalse(dump.isSelected("net.example.Target"));
+    }
+
+    @Test
+    public void testStages() throws IOException {
+        TransformerDump dump = new TransformerDump(this.dir, this.transformers, CLASS_NAME);
+        record(dump);
+        dump.finish();
+
+        File classDir = new File(this.dir, "com/example/Target");
+        assertArrayEquals(ORIGINAL, Files.toByteArray(new File(classDir, "00-original.class")));
+        assertArrayEquals(MODIFIED, Files.toByteArray(new File(classDir, "01-Modifying.class")));
+        assertArrayEquals(MODIFIED, Files.toByteArray(new File(classDir, "02-Unchanged.class")));
+
+        assertEquals(ImmutableList.of(
+                "transformer,classes,modified",
+                Modifying.class.getName() + ",1,1",
+                Unchanged.class.getName() + ",1,0"), Files.readLines(new File(this.dir, "transformers.csv"), Charsets.UTF_8));
+        assertEquals(ImmutableList.of(
+                "class,stage,transformer,modified,bytes_in,bytes_out",
+                CLASS_NAME + ",1," + Modifying.class.getName() + ",true,3,4",
+                CLASS_NAME + ",2," + Unchanged.class.getName() + ",false,4,4"), Files.readLines(new File(this.dir, "stages.csv"), Charsets.UTF_8));
+    }
+
+    @Test
+    public void testUnchangedFilesKept() throws IOException {
+        TransformerDump dump = new TransformerDump(this.dir, this.transformers, CLASS_NAME);
+        record(dump);
+        dump.finish();
+
+        File original = new File(this.dir, "com/example/Target/00-original.class");
+        assertTrue(original.setLastModified(1000));
+
+        // Files with the same content are not written again
+        dump = new TransformerDump(this.dir, this.transformers, CLASS_NAME);
+        record(dump);
+        dump.finish();
+        assertEquals(1000, original.lastModified());
+    }
+
+    private static void record(TransformerDump dump) {
+        dump.recordOriginal(CLASS_NAME, ORIGINAL);
+        dump.recordStage(CLASS_NAME, 0, ORIGINAL, MODIFIED);
+        dump.recordStage(CLASS_NAME, 1, MODIFIED, MODIFIED);
+    }
+
+    private static final class Modifying implements IClassTransformer {
+
+        @Override
+        public byte[] transform(String name, String transformedName, byte[] bytes) {
+            return MODIFIED;
+        }
+
+    }
+
+    private static final class Unchanged implements IClassTransformer {
+
+        @Override
+        public byte[] transform(String name, String transformedName, byte[] bytes) {
+            return bytes;
+        }
+
+    }
+
+}